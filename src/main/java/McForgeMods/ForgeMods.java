@@ -4,12 +4,14 @@ import McForgeMods.commandes.*;
 import McForgeMods.depot.DepotInstallation;
 import McForgeMods.depot.DepotLocal;
 import McForgeMods.outils.Sources;
-import McForgeMods.solveur.SolveurPaquet;
+import McForgeMods.solveur.*;
+import org.json.JSONException;
 import picocli.CommandLine;
 
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -76,6 +78,7 @@ public class ForgeMods implements Runnable {
 	@CommandLine.Command(name = "search")
 	public int commandeSearch(@CommandLine.Mixin Help help, @CommandLine.Option(names = {"-d", "--depot"}) Path depot,
 			@CommandLine.Option(names = {"-e", "--regex"}) boolean regex,
+			@CommandLine.Option(names = {"--mcversion"}) String mcversion,
 			@CommandLine.Parameters(paramLabel = "search", arity = "1") String recherche) {
 		final DepotLocal depotLocal = new DepotLocal(depot);
 		try {
@@ -85,12 +88,15 @@ public class ForgeMods implements Runnable {
 			return 1;
 		}
 		
+		// seules les versions compatibles avec la version de minecraft demandée sont cherchées
+		final Version minecraft = mcversion == null ? null : Version.read(mcversion);
 		final HashSet<String> modids = new HashSet<>();
 		if (regex) {
 			Pattern schema = Pattern.compile(recherche, Pattern.CASE_INSENSITIVE);
 			for (String modid : depotLocal.getModids()) {
 				Stream<Matcher> s_match = Stream.concat(Stream.of(modid),
-						depotLocal.getModVersions(modid).stream().map(v -> v.nomCommun).filter(Objects::nonNull))
+						depotLocal.getModVersions(modid, minecraft).stream().map(v -> v.nomCommun)
+								.filter(Objects::nonNull))
 						.map(schema::matcher);
 				if (s_match.anyMatch(Matcher::find)) modids.add(modid);
 			}
@@ -105,7 +111,7 @@ public class ForgeMods implements Runnable {
 		}
 		
 		modids.stream().sorted(String::compareTo).forEach(modid -> {
-			Optional<PaquetMinecraft> modVersion = depotLocal.getModVersions(modid).stream()
+			Optional<PaquetMinecraft> modVersion = depotLocal.getModVersions(modid, minecraft).stream()
 					.max(Comparator.comparing(mv -> mv.version));
 			modVersion.ifPresent(mod -> System.out.printf("\u001B[32m%s\u001B[0m \"%s\"%n", mod.modid, mod.version));
 		});
@@ -117,7 +123,8 @@ public class ForgeMods implements Runnable {
 	public int depends(
 			@CommandLine.Parameters(index = "0", arity = "0..n", descriptionKey = "mods") ArrayList<String> mods,
 			@CommandLine.Mixin ForgeMods.DossiersOptions dossiers,
-			@CommandLine.Option(names = {"-a", "--all"}) boolean all, @CommandLine.Mixin ForgeMods.Help help) {
+			@CommandLine.Option(names = {"-a", "--all"}) boolean all, @CommandLine.Mixin ForgeMods.Help help,
+			@CommandLine.Mixin ForgeMods.StatistiquesOptions statistiques) {
 		final DepotLocal depotLocal;
 		final DepotInstallation depotInstallation;
 		
@@ -150,7 +157,9 @@ public class ForgeMods implements Runnable {
 				String modid = entry.getKey();
 				VersionIntervalle version = entry.getValue();
 				if (depotLocal.contains(modid)) {
-					Optional<PaquetMinecraft> trouvee = depotLocal.getModVersions(modid).stream()
+					// seules les versions que le solveur chargera pour cette installation
+					Optional<PaquetMinecraft> trouvee = depotLocal
+							.getModVersions(modid, depotInstallation.mcversion).stream()
 							.filter(modVersion -> version.equals(VersionIntervalle.ouvert()) || version
 									.contains(modVersion.version)).max(Comparator.comparing(mv -> mv.version));
 					if (trouvee.isPresent()) resultat.add(trouvee.get());
@@ -171,17 +180,72 @@ public class ForgeMods implements Runnable {
 		
 		// Liste complète des dépendances nécessaire pour la liste des mods présent.
 		final SolveurPaquet solveur = new SolveurPaquet(depotLocal, depotInstallation.mcversion);
-		solveur.ajoutVariable("forge", Collections.singleton(depotInstallation.forge));
-		listeRecherche.forEach(p -> solveur.domaineVariable(p.modid).reduction(p.version));
-		solveur.coherence();
+		solveur.statistiques().detail = statistiques.actif();
+		final SessionSolveur session = new SessionSolveur(solveur);
+		session.ajoutVariable("forge", Collections.singleton(depotInstallation.forge));
+		listeRecherche.forEach(p -> session.restriction(p.modid, v -> Objects.equals(v, p.version)));
 		
-		System.out.printf("%d dépendances%n", solveur.variables().size());
-		for (String dep : solveur.variables()) {
-			System.out.println(dep + " " + solveur.domaineVariable(dep).get(0));
+		if (!session.solveur().coherence()) {
+			System.err.println("Dépendances impossibles à satisfaire:");
+			final Set<String> echecs = session.echecs();
+			if (echecs.isEmpty()) listeRecherche.forEach(p -> System.err.println("\t" + p.modid + "@" + p.version));
+			else echecs.forEach(modid -> System.err.println("\t" + modid));
+			statistiques.rapport(session.statistiques());
+			return 10;
 		}
+		
+		System.out.printf("%d dépendances%n", session.variables().size());
+		for (String dep : session.variables()) {
+			final Domaine<Version> domaine = session.solveur().domaineVariable(dep);
+			if (domaine.size() == 0) System.out.println(dep + " insatisfaisable");
+			else System.out.println(dep + " " + domaine.get(0));
+		}
+		statistiques.rapport(session.statistiques());
 		return 0;
 	}
 	
+	@CommandLine.Command(name = "replay")
+	public int replay(@CommandLine.Parameters(index = "0", descriptionKey = "probleme") Path fichier,
+			@CommandLine.Option(names = {"--solver"}, defaultValue = "csp", descriptionKey = "moteur")
+					Resolveur.Moteur moteur,
+			@CommandLine.Option(names = {"--heuristic"}, defaultValue = "domwdeg", descriptionKey = "heuristique")
+					SelecteurVariable.Heuristique heuristique,
+			@CommandLine.Option(names = {"--portfolio"}, defaultValue = "1", descriptionKey = "portfolio")
+					int portfolio,
+			@CommandLine.Option(names = {"--split-depth"}, defaultValue = "0", descriptionKey = "parallele")
+					int parallele,
+			@CommandLine.Option(names = {"--components"}, descriptionKey = "composantes") boolean composantes,
+			@CommandLine.Option(names = {"--solver-timeout"}, defaultValue = "0", descriptionKey = "delai") long delai,
+			@CommandLine.Mixin ForgeMods.StatistiquesOptions statistiques, @CommandLine.Mixin ForgeMods.Help help) {
+		final Probleme probleme;
+		try (InputStream input = Files.newInputStream(fichier)) {
+			probleme = Probleme.lecture(input);
+		} catch (IOException | JSONException e) {
+			System.err.printf("Erreur de lecture du problème: %s %s%n", e.getClass(), e.getMessage());
+			return 1;
+		}
+		
+		final long debut = System.nanoTime();
+		final Resolveur solveur = probleme.resolveur(moteur, heuristique);
+		solveur.budget(new Budget(delai, 0, 0));
+		solveur.statistiques().detail = statistiques.actif();
+		final boolean resolu;
+		if (portfolio > 1) resolu = solveur.resolutionPortfolio(portfolio);
+		else if (parallele > 0) resolu = solveur.resolutionParallele(parallele);
+		else if (composantes) resolu = solveur.resolutionComposantes(true);
+		else resolu = solveur.resolution();
+		final long duree = (System.nanoTime() - debut) / 1_000_000;
+		
+		if (resolu) {
+			System.out.printf("Solution en %d ms:%n", duree);
+			for (String modid : solveur.variables())
+				if (solveur.solution(modid) != null) System.out.println(modid + " " + solveur.solution(modid));
+		} else if (solveur.interrompue()) System.out.printf("Résolution interrompue après %d ms%n", duree);
+		else System.out.printf("Aucune solution, prouvé en %d ms%n", duree);
+		statistiques.rapport(solveur.statistiques());
+		return resolu ? 0 : 10;
+	}
+	
 	@CommandLine.Command(name = "mark")
 	public int mark(@CommandLine.Option(names = {"-m", "--minecraft"}) Path minecraft,
 			@CommandLine.Parameters(arity = "1", paramLabel = "action") MarkAction action,
@@ -277,4 +341,32 @@ public class ForgeMods implements Runnable {
 		@CommandLine.Option(names = {"-m", "--minecraft"}, description = "Dossier minecraft (~/.minecraft)")
 		public Path minecraft = null;
 	}
+	
+	/**
+	 * Options communes aux fonctions utilisant un solveur: rapport de son activité, lisible ou en JSON.
+	 */
+	public static class StatistiquesOptions {
+		@CommandLine.Option(names = {"--stats"}, description = "Affiche l'activité du solveur")
+		public boolean rapport = false;
+		
+		@CommandLine.Option(names = {"--stats-json"}, description = "Enregistre l'activité du solveur en JSON")
+		public Path json = null;
+		
+		/** @return {@code true} si un rapport est demandé: le solveur chronomètre alors chaque contrainte. */
+		public boolean actif() {
+			return this.rapport || this.json != null;
+		}
+		
+		/** Produit les rapports demandés. */
+		public void rapport(final Statistiques statistiques) {
+			if (this.rapport) System.err.println(statistiques.rapport());
+			if (this.json != null) {
+				try {
+					Files.writeString(this.json, statistiques.json().toString(2));
+				} catch (IOException e) {
+					System.err.printf("Erreur d'écriture des statistiques: %s %s%n", e.getClass(), e.getMessage());
+				}
+			}
+		}
+	}
 }
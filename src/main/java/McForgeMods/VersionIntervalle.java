@@ -219,8 +219,21 @@ public class VersionIntervalle {
 	 * @return {@code true} si la version est comprise dans l'intervalle.
 	 */
 	public boolean contains(Version version) {
-		return version != null && ((minimum == null || version.compareTo(minimum) >= (inclut_min ? 0 : 1)) && (
-				maximum == null || version.compareTo(maximum) <= (inclut_max ? 0 : -1)));
+		return version != null && !this.inferieur(version) && !this.superieur(version);
+	}
+	
+	/**
+	 * @return {@code true} si la version est en dessous de la borne inférieure.
+	 */
+	public boolean inferieur(Version version) {
+		return minimum != null && version.compareTo(minimum) < (inclut_min ? 0 : 1);
+	}
+	
+	/**
+	 * @return {@code true} si la version est au-dessus de la borne supérieure.
+	 */
+	public boolean superieur(Version version) {
+		return maximum != null && version.compareTo(maximum) > (inclut_max ? 0 : -1);
 	}
 	
 	@Deprecated
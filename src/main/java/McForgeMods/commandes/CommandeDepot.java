@@ -109,6 +109,12 @@ public class CommandeDepot implements Runnable {
 			}
 		}
 		
+		depot.elagage();
+		if (verbose) for (final Map.Entry<VersionIntervalle, Set<PaquetMinecraft>> zone : depot.mortes().entrySet())
+			if (!zone.getValue().isEmpty())
+				System.out.printf("minecraft@%s: %d versions sans installation possible%n", zone.getKey(),
+						zone.getValue().size());
+		
 		try {
 			depot.sauvegarde();
 		} catch (IOException i) {
@@ -2,10 +2,16 @@ package McForgeMods.commandes;
 
 import McForgeMods.ForgeMods;
 import McForgeMods.PaquetMinecraft;
+import McForgeMods.Version;
 import McForgeMods.VersionIntervalle;
 import McForgeMods.depot.DepotInstallation;
 import McForgeMods.depot.DepotLocal;
-import McForgeMods.solveur.SolveurPaquet;
+import McForgeMods.solveur.Budget;
+import McForgeMods.solveur.Diagnostic;
+import McForgeMods.solveur.ObjectifPaquet;
+import McForgeMods.solveur.OrdreVersions;
+import McForgeMods.solveur.Resolveur;
+import McForgeMods.solveur.SelecteurVariable;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
@@ -13,7 +19,10 @@ import org.apache.commons.vfs2.VFS;
 import picocli.CommandLine;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
@@ -33,6 +42,7 @@ public class CommandeInstall implements Callable<Integer> {
 	static final int ERREUR_NOM     = 10;
 	static final int ERREUR_MODID   = ERREUR_NOM + 1;
 	static final int ERREUR_VERSION = ERREUR_NOM + 2;
+	static final int ERREUR_DELAI   = 30;
 	
 	@CommandLine.Option(names = {"-h", "--help"}, usageHelp = true)
 	boolean help;
@@ -60,6 +70,37 @@ public class CommandeInstall implements Callable<Integer> {
 			description = "Termine l'installation pour" + " tous les mods possibles")
 	boolean force;
 	
+	@CommandLine.Option(names = {"--heuristic"}, defaultValue = "domwdeg", descriptionKey = "heuristique")
+	SelecteurVariable.Heuristique heuristique;
+	
+	@CommandLine.Option(names = {"--solver"}, defaultValue = "csp", descriptionKey = "moteur")
+	Resolveur.Moteur moteur;
+	
+	@CommandLine.Option(names = {"--optimize"}, defaultValue = "false", descriptionKey = "optimisation")
+	boolean optimisation;
+	
+	@CommandLine.Option(names = {"--portfolio"}, defaultValue = "1", descriptionKey = "portfolio")
+	int portfolio;
+	
+	@CommandLine.Option(names = {"--split-depth"}, defaultValue = "0", descriptionKey = "parallele")
+	int parallele;
+	
+	@CommandLine.Option(names = {"--components"}, defaultValue = "false", descriptionKey = "composantes")
+	boolean composantes;
+	
+	@CommandLine.Option(names = {"--prefer"}, split = ",", defaultValue = "installee,cache,stable",
+			descriptionKey = "preference")
+	List<OrdreVersions.Critere> preference;
+	
+	@CommandLine.Option(names = {"--solver-timeout"}, defaultValue = "0", descriptionKey = "delai")
+	long delai;
+	
+	@CommandLine.Mixin
+	ForgeMods.StatistiquesOptions statistiques;
+	
+	@CommandLine.Option(names = {"--dump-problem"}, descriptionKey = "probleme")
+	Path probleme;
+	
 	
 	@Override
 	public Integer call() {
@@ -96,10 +137,19 @@ public class CommandeInstall implements Callable<Integer> {
 		
 		
 		// +-+-+-+-+-+-+-+- Solveur +-+-+-+-+-+-+-+-
-		final SolveurPaquet solveur = new SolveurPaquet(depotLocal, depotInstallation.mcversion);
+		final Map<String, Version> installes = new HashMap<>();
+		for (String modid : depotInstallation.getModids())
+			installes.put(modid, depotInstallation.getInstallation(modid).version);
+		
+		final Resolveur solveur = moteur.creation(depotLocal, depotInstallation.mcversion, heuristique);
+		solveur.ordreValeurs(new OrdreVersions(installes, depotLocal::enCache, preference));
+		solveur.budget(new Budget(delai, 0, 0));
+		solveur.statistiques().detail = statistiques.actif();
 		solveur.ajoutVariable("forge", Collections.singleton(depotInstallation.forge));
 		depotInstallation.getModids().forEach(solveur::initialisationMod);
 		
+		/* Description de chaque restriction posée, pour expliquer un échec. */
+		final Map<String, String> restrictions = new HashMap<>();
 		for (final Map.Entry<String, VersionIntervalle> demande : demandes.entrySet()) {
 			if (!depotLocal.getModids().contains(demande.getKey())) {
 				System.err.printf("[ERROR] Modid inconnu: '%s'%n", demande.getKey());
@@ -113,7 +163,8 @@ public class CommandeInstall implements Callable<Integer> {
 				return ERREUR_VERSION;
 			}
 			
-			solveur.domaineVariable(demande.getKey()).removeIf(v -> !demande.getValue().contains(v));
+			solveur.restriction(demande.getKey(), demande.getValue()::contains);
+			restrictions.put(demande.getKey(), demande.getKey() + "@" + demande.getValue());
 		}
 		
 		// Ajout de toutes les installations manuelles dans l'installation
@@ -121,22 +172,91 @@ public class CommandeInstall implements Callable<Integer> {
 		for (String modid : depotInstallation.getModids()) {
 			DepotInstallation.Installation ins = depotInstallation.informations(modid);
 			if ((ins.manuel() || ins.verrou()) && !demandes.containsKey(ins.paquet.modid)) {
-				solveur.domaineVariable(ins.paquet.modid).remove(null);
+				solveur.restriction(ins.paquet.modid, Objects::nonNull);
+				restrictions.put(ins.paquet.modid,
+						ins.paquet.modid + (ins.verrou() ? " (verrouillé)" : " (installé manuellement)"));
 			}
 		}
 		
-		if (!solveur.resolution()) {
+		if (optimisation) {
+			final Set<String> verrous = new HashSet<>();
+			for (String modid : depotInstallation.getModids())
+				if (depotInstallation.informations(modid).verrou()) verrous.add(modid);
+			try {
+				solveur.optimisation(new ObjectifPaquet(installes, verrous));
+			} catch (UnsupportedOperationException uoe) {
+				System.err.println("[ERROR] " + uoe.getMessage());
+				return 1;
+			}
+		}
+		
+		if (probleme != null) {
+			try (OutputStream fichier = Files.newOutputStream(probleme)) {
+				solveur.probleme().ecriture(fichier);
+			} catch (IOException | UnsupportedOperationException e) {
+				System.err.printf("[ERROR] Impossible d'enregistrer le problème: %s%n", e.getMessage());
+				return 1;
+			}
+		}
+		
+		final long debut = System.nanoTime();
+		final boolean resolu;
+		if (portfolio > 1) resolu = solveur.resolutionPortfolio(portfolio);
+		else if (parallele > 0) resolu = solveur.resolutionParallele(parallele);
+		else if (composantes) resolu = solveur.resolutionComposantes(true);
+		else resolu = solveur.resolution();
+		final long duree = (System.nanoTime() - debut) / 1_000_000;
+		statistiques.rapport(solveur.statistiques());
+		if (!resolu && solveur.interrompue()) {
+			System.err.printf("Résolution interrompue après %d ms, aucune solution trouvée.%n", duree);
+			final StringJoiner joiner = new StringJoiner(" ");
+			solveur.solutionPartielle().forEach((modid, version) -> joiner.add(modid + "=" + version));
+			System.err.println("Versions déjà choisies:");
+			System.err.println("\t" + joiner.toString());
+			return ERREUR_DELAI;
+		}
+		if (!resolu) {
 			System.err.println("Impossible de résoudre les dépendances:");
-			for (final String id : solveur.variables()) {
-				if (solveur.domaineVariable(id).size() == 0) System.err.println(id);
+			List<Map.Entry<String, Predicate<Version>>> conflit = null;
+			final long debutConflit = System.nanoTime();
+			try {
+				conflit = solveur.conflitMinimal();
+			} catch (UnsupportedOperationException ignored) {
+			} catch (Diagnostic.Interruption interruption) {
+				System.err.printf("%s après %d ms.%n", interruption.getMessage(),
+						(System.nanoTime() - debutConflit) / 1_000_000);
+			}
+			if (conflit == null || conflit.isEmpty()) {
+				solveur.echecs().forEach(System.err::println);
+				return 10;
+			}
+			System.err.println("Demandes incompatibles:");
+			conflit.forEach(restriction -> System.err.println("\t" + restrictions.get(restriction.getKey())));
+			final Map<String, Predicate<Version>> minimales = new LinkedHashMap<>();
+			conflit.forEach(restriction -> minimales.put(restriction.getKey(), restriction.getValue()));
+			final long debutAretes = System.nanoTime();
+			try {
+				final List<Diagnostic.Arete> aretes = Diagnostic.aretes(depotLocal, depotInstallation.mcversion,
+						Collections.singletonMap("forge", Collections.singleton(depotInstallation.forge)), minimales,
+						new Budget(delai, 0, 0));
+				if (aretes != null && !aretes.isEmpty()) {
+					System.err.println("Dépendances en cause:");
+					aretes.forEach(arete -> System.err.println("\t" + arete));
+				}
+			} catch (Diagnostic.Interruption interruption) {
+				System.err.printf("%s après %d ms.%n", interruption.getMessage(),
+						(System.nanoTime() - debutAretes) / 1_000_000);
 			}
 			return 10;
 		}
+		if (optimisation) System.out.println("Objectif: " + ObjectifPaquet.description(solveur.valeurObjectif()));
+		if (solveur.interrompue())
+			System.out.printf("Résolution interrompue après %d ms: meilleure solution trouvée.%n", duree);
 		
 		final List<PaquetMinecraft> installations = solveur.variables().stream()
 				.filter(modid -> !modid.equals("forge") && !modid.equals("minecraft"))
-				.filter(modid -> solveur.domaineVariable(modid).get(0) != null)
-				.map(modid -> depotLocal.getModVersion(modid, solveur.domaineVariable(modid).get(0))).map(Optional::get)
+				.filter(modid -> solveur.solution(modid) != null)
+				.map(modid -> depotLocal.getModVersion(modid, solveur.solution(modid))).map(Optional::get)
 				.filter(paquet -> !depotInstallation.contains(paquet.modid) || !depotInstallation
 						.getInstallation(paquet.modid).version.equals(paquet.version)).collect(Collectors.toList());
 		
@@ -2,16 +2,19 @@ package McForgeMods.commandes;
 
 import McForgeMods.ForgeMods;
 import McForgeMods.PaquetMinecraft;
+import McForgeMods.Version;
 import McForgeMods.depot.DepotInstallation;
 import McForgeMods.depot.DepotLocal;
+import McForgeMods.solveur.OrdreVersions;
+import McForgeMods.solveur.SessionSolveur;
+import McForgeMods.solveur.SolveurPaquet;
 import org.apache.commons.vfs2.FileSystemException;
 import picocli.CommandLine;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 @CommandLine.Command(name = "list", resourceBundle = "mcforgemods/lang/List")
 public class CommandeListe implements Callable<Integer> {
@@ -26,6 +29,8 @@ public class CommandeListe implements Callable<Integer> {
 	private Mode    mode = null;
 	@CommandLine.Option(names = {"-a", "--all-versions"})
 	private boolean all;
+	@CommandLine.Option(names = {"--installable"})
+	private boolean installables;
 	
 	@Override
 	public Integer call() {
@@ -37,6 +42,7 @@ public class CommandeListe implements Callable<Integer> {
 			return -1;
 		}
 		
+		if (installables) return this.installables(depotLocal);
 		if (all || !installes) {
 			List<String> modids = new ArrayList<>(depotLocal.getModids());
 			modids.sort(String::compareTo);
@@ -76,6 +82,47 @@ public class CommandeListe implements Callable<Integer> {
 		}
 	}
 	
+	/**
+	 * Affiche les mods du dépôt qui peuvent être ajoutés à l'installation, avec la version qui serait installée. Tous
+	 * les mods sont chargés dans une seule session, chaque mod est ensuite essayé depuis une copie de son état.
+	 */
+	private int installables(final DepotLocal depotLocal) {
+		final DepotInstallation depotInstallation;
+		try {
+			depotInstallation = DepotInstallation.depot(dossiers.minecraft);
+			depotInstallation.statusImportation();
+		} catch (FileSystemException e) {
+			System.err.println("Erreur de lecture du dépôt.");
+			return 1;
+		}
+		if (depotInstallation.mcversion == null) {
+			System.err.println("Version de minecraft inconnu: utilisez 'set --minecraft VERSION'");
+			return 1;
+		}
+		
+		final Map<String, Version> installes = new HashMap<>();
+		for (String modid : depotInstallation.getModids())
+			installes.put(modid, depotInstallation.getInstallation(modid).version);
+		final SolveurPaquet paquets = new SolveurPaquet(depotLocal, depotInstallation.mcversion);
+		paquets.ordreValeurs(
+				new OrdreVersions(installes, depotLocal::enCache, EnumSet.allOf(OrdreVersions.Critere.class)));
+		final SessionSolveur session = new SessionSolveur(paquets);
+		session.ajoutVariable("forge", Collections.singleton(depotInstallation.forge));
+		depotInstallation.getModids().forEach(session::initialisationMod);
+		depotLocal.getModids().forEach(session::initialisationMod);
+		for (String modid : depotInstallation.getModids()) {
+			DepotInstallation.Installation ins = depotInstallation.informations(modid);
+			if (ins.manuel() || ins.verrou()) session.restriction(modid, Objects::nonNull);
+		}
+		
+		final List<String> candidats = depotLocal.getModids().stream()
+				.filter(modid -> !depotInstallation.contains(modid)).sorted().collect(Collectors.toList());
+		final Map<String, Version> versions = session.installables(candidats);
+		for (String modid : candidats)
+			if (versions.containsKey(modid)) System.out.println(modid + ":" + versions.get(modid));
+		return 0;
+	}
+	
 	static class Mode {
 		@CommandLine.Option(names = {"--manual"})
 		boolean manuels;
@@ -2,6 +2,7 @@ package McForgeMods.commandes;
 
 import McForgeMods.ForgeMods;
 import McForgeMods.PaquetMinecraft;
+import McForgeMods.Version;
 import McForgeMods.VersionIntervalle;
 import McForgeMods.depot.DepotLocal;
 import picocli.CommandLine;
@@ -20,6 +21,9 @@ public class CommandeShow implements Callable<Integer> {
 	@CommandLine.Option(names = {"-r", "--repo"})
 	public Path depot = null;
 	
+	@CommandLine.Option(names = {"--mcversion"}, descriptionKey = "mcversion")
+	public String mcversion = null;
+	
 	@CommandLine.Parameters(arity = "1..n", descriptionKey = "recherche")
 	ArrayList<String> recherche;
 	
@@ -33,6 +37,7 @@ public class CommandeShow implements Callable<Integer> {
 		}
 		
 		final List<PaquetMinecraft> versions = new ArrayList<>();
+		final Version minecraft = mcversion == null ? null : Version.read(mcversion);
 		
 		final Map<String, VersionIntervalle> demandes;
 		try {
@@ -45,7 +50,7 @@ public class CommandeShow implements Callable<Integer> {
 		for (Map.Entry<String, VersionIntervalle> rech : demandes.entrySet()) {
 			if (!depotLocal.contains(rech.getKey())) System.err.printf("Mod inconnu: '%s'%n", rech.getKey());
 			else {
-				List<PaquetMinecraft> modVersion = depotLocal.getModVersions(rech.getKey()).stream()
+				List<PaquetMinecraft> modVersion = depotLocal.getModVersions(rech.getKey(), minecraft).stream()
 						.filter(v -> rech.getValue().contains(v.version)).collect(Collectors.toList());
 				if (modVersion.size() > 0) versions.addAll(modVersion);
 				else System.err.printf("Aucune version disponible pour '%s@%s'%n", rech.getKey(), rech.getValue());
@@ -104,6 +104,7 @@ public class CommandeUpdate implements Callable<Integer> {
 			}
 		}
 		
+		depotLocal.elagage();
 		try {
 			depotLocal.sauvegarde();
 			System.out.println("Dépot sauvegardé en " + depotLocal.dossier);
@@ -2,19 +2,41 @@ package McForgeMods.depot;
 
 import McForgeMods.PaquetMinecraft;
 import McForgeMods.Version;
+import McForgeMods.VersionIntervalle;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Un dépôt est un ensemble de paquets. Il maintient une liste de identifiants connus et des versions pour ces
  * identifiants.
  * <p>
  * Cette classe est un contenant, il faut donc définir une façon de le remplir.
+ * <p>
+ * Les versions sont aussi regroupées par intervalle de versions de minecraft requis. Un dépôt couvre souvent
+ * plusieurs générations de minecraft: {@link #getModVersions(String, Version)} ne renvoit que les versions
+ * compatibles avec une version de minecraft, à partir d'un fragment du dépôt calculé une seule fois par version.
+ * <p>
+ * Les versions qui ne pourront jamais être installées sont aussi écartées des fragments, une fois calculées par
+ * {@link #elagage()}.
  */
 public class Depot {
+	/** Mods fournis par l'installation et non par le dépôt. */
+	private static final Set<String> INSTALLATION = Set.of("minecraft", "forge");
+	
 	/** Emplacement des fichiers */
-	public final    HashMap<PaquetMinecraft, PaquetMinecraft.FichierMetadata> archives    = new HashMap<>();
-	protected final HashMap<String, Set<PaquetMinecraft>>                     mod_version = new HashMap<>();
+	public final    HashMap<PaquetMinecraft, PaquetMinecraft.FichierMetadata>         archives      = new HashMap<>();
+	protected final HashMap<String, Set<PaquetMinecraft>>                             mod_version   = new HashMap<>();
+	/** Versions des mods regroupées par intervalle de versions de minecraft requis. */
+	private final   HashMap<VersionIntervalle, HashMap<String, Set<PaquetMinecraft>>> par_minecraft = new HashMap<>();
+	/** Versions des mods compatibles avec une version de minecraft, calculées à la première demande. */
+	private final   HashMap<Version, HashMap<String, Set<PaquetMinecraft>>>           fragments     = new HashMap<>();
+	
+	/**
+	 * Versions sans installation possible, par zone de versions de minecraft. Vide tant que {@link #elagage()} n'a pas
+	 * été appelé depuis la dernière modification du dépôt.
+	 */
+	protected final Map<VersionIntervalle, Set<PaquetMinecraft>> mortes = new LinkedHashMap<>();
 	
 	/**
 	 * Renvoit la liste complète, sans doublons, des mods présents dans le dépôt.
@@ -32,6 +54,115 @@ public class Depot {
 		return this.mod_version.get(modid);
 	}
 	
+	/**
+	 * Fournit les versions du mod compatibles avec une version de minecraft. Si la version de minecraft est {@code
+	 * null}, toutes les versions sont renvoyées.
+	 *
+	 * @return un ensemble, vide si le mod n'est pas connu ou n'a aucune version compatible.
+	 */
+	public Set<PaquetMinecraft> getModVersions(String modid, Version minecraft) {
+		if (minecraft == null) return this.mod_version.getOrDefault(modid, Collections.emptySet());
+		return this.fragment(minecraft).getOrDefault(modid, Collections.emptySet());
+	}
+	
+	/** Rassemble les versions compatibles avec une version de minecraft, moins celles sans installation possible. */
+	private synchronized HashMap<String, Set<PaquetMinecraft>> fragment(final Version minecraft) {
+		return this.fragments.computeIfAbsent(minecraft, mc -> {
+			final HashMap<String, Set<PaquetMinecraft>> fragment = this.reunion(i -> i == null || i.contains(mc));
+			this.mortes.forEach((zone, mortes) -> {
+				if (zone.contains(mc)) for (final PaquetMinecraft paquet : mortes)
+					fragment.getOrDefault(paquet.modid, Collections.emptySet()).remove(paquet);
+			});
+			return fragment;
+		});
+	}
+	
+	/** Réunit les groupes dont l'intervalle de versions de minecraft requis vérifie le test. */
+	private HashMap<String, Set<PaquetMinecraft>> reunion(final Predicate<VersionIntervalle> test) {
+		final HashMap<String, Set<PaquetMinecraft>> reunion = new HashMap<>();
+		this.par_minecraft.forEach((intervalle, groupe) -> {
+			if (test.test(intervalle)) groupe.forEach(
+					(modid, versions) -> reunion.computeIfAbsent(modid, k -> new HashSet<>()).addAll(versions));
+		});
+		return reunion;
+	}
+	
+	/**
+	 * Calcule, pour chaque version de minecraft, les versions dont une dépendance ne peut être satisfaite par aucune
+	 * version du dépôt elle-même installable. Le calcul est fait une fois par mise à jour du dépôt plutôt qu'à chaque
+	 * résolution, les fragments n'offrent ensuite plus ces versions.
+	 * <p>
+	 * Les bornes des intervalles de versions de minecraft découpent les versions de minecraft en zones: chaque borne,
+	 * puis l'écart entre deux bornes consécutives. Toutes les versions d'une même zone voient le même fragment, donc
+	 * les mêmes versions sans installation possible. Les conflits et les dépendances envers {@code forge} sont ignorés:
+	 * une version écartée ne peut vraiment pas être installée, une version conservée peut encore échouer.
+	 */
+	public synchronized void elagage() {
+		this.mortes.clear();
+		this.fragments.clear();
+		final TreeSet<Version> bornes = new TreeSet<>();
+		for (final VersionIntervalle intervalle : this.par_minecraft.keySet())
+			if (intervalle != null) {
+				if (intervalle.minimum() != null) bornes.add(intervalle.minimum());
+				if (intervalle.maximum() != null) bornes.add(intervalle.maximum());
+			}
+		
+		Version precedente = null;
+		for (final Version borne : bornes) {
+			this.elagage(new VersionIntervalle(precedente, borne, false, false), couverture(precedente, borne));
+			this.elagage(new VersionIntervalle(borne), i -> i == null || i.contains(borne));
+			precedente = borne;
+		}
+		this.elagage(new VersionIntervalle(precedente, null, false, false), couverture(precedente, null));
+	}
+	
+	/** Un intervalle contient-il tout l'écart entre deux bornes consécutives ? {@code null} pour l'infini. */
+	private static Predicate<VersionIntervalle> couverture(final Version debut, final Version fin) {
+		return i -> i == null || (i.minimum() == null || debut != null && i.minimum().compareTo(debut) <= 0)
+				&& (i.maximum() == null || fin != null && i.maximum().compareTo(fin) >= 0);
+	}
+	
+	/** Point fixe sur une zone: une version écartée remet en cause les versions qui dépendent de son mod. */
+	private void elagage(final VersionIntervalle zone, final Predicate<VersionIntervalle> couverture) {
+		final HashMap<String, Set<PaquetMinecraft>> viables = this.reunion(couverture);
+		final Map<String, List<PaquetMinecraft>> dependants = new HashMap<>();
+		final Deque<PaquetMinecraft> travail = new ArrayDeque<>();
+		for (final Set<PaquetMinecraft> versions : viables.values())
+			for (final PaquetMinecraft paquet : versions) {
+				travail.add(paquet);
+				for (final String dep : paquet.requiredMods.keySet())
+					dependants.computeIfAbsent(dep, k -> new ArrayList<>()).add(paquet);
+			}
+		
+		final Set<PaquetMinecraft> mortes = new HashSet<>();
+		while (!travail.isEmpty()) {
+			final PaquetMinecraft paquet = travail.poll();
+			if (mortes.contains(paquet)) continue;
+			for (final Map.Entry<String, VersionIntervalle> dep : paquet.requiredMods.entrySet()) {
+				if (dep.getValue() == null || INSTALLATION.contains(dep.getKey())) continue;
+				if (viables.getOrDefault(dep.getKey(), Collections.emptySet()).stream()
+						.noneMatch(version -> dep.getValue().contains(version.version))) {
+					mortes.add(paquet);
+					viables.get(paquet.modid).remove(paquet);
+					travail.addAll(dependants.getOrDefault(paquet.modid, Collections.emptyList()));
+					break;
+				}
+			}
+		}
+		this.elagage(zone, mortes);
+	}
+	
+	/** Versions sans installation possible par zone de versions de minecraft, vide avant {@link #elagage()}. */
+	public Map<VersionIntervalle, Set<PaquetMinecraft>> mortes() {
+		return Collections.unmodifiableMap(this.mortes);
+	}
+	
+	/** Enregistre les versions sans installation possible d'une zone de versions de minecraft. */
+	protected synchronized void elagage(final VersionIntervalle zone, final Set<PaquetMinecraft> mortes) {
+		this.mortes.put(zone, mortes);
+		this.fragments.clear();
+	}
+	
 	/**
 	 * Cherche une version particulière d'un mod. Pour vérifier qu'une version est disponible, utiliser {@link
 	 * #contains(PaquetMinecraft)}.
@@ -63,7 +194,13 @@ public class Depot {
 	 */
 	public boolean ajoutModVersion(final PaquetMinecraft modVersion) {
 		if (!mod_version.containsKey(modVersion.modid)) mod_version.put(modVersion.modid, new HashSet<>());
-		return mod_version.get(modVersion.modid).add(modVersion);
+		if (!mod_version.get(modVersion.modid).add(modVersion)) return false;
+		this.par_minecraft.computeIfAbsent(modVersion.mcversion(), k -> new HashMap<>())
+				.computeIfAbsent(modVersion.modid, k -> new HashSet<>()).add(modVersion);
+		// une nouvelle version peut rendre d'autres versions installables
+		this.mortes.clear();
+		this.fragments.clear();
+		return true;
 	}
 	
 	/**
@@ -75,5 +212,8 @@ public class Depot {
 	
 	public void clear() {
 		this.mod_version.clear();
+		this.par_minecraft.clear();
+		this.mortes.clear();
+		this.fragments.clear();
 	}
 }
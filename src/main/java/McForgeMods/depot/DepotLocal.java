@@ -2,6 +2,8 @@ package McForgeMods.depot;
 
 import McForgeMods.Mod;
 import McForgeMods.PaquetMinecraft;
+import McForgeMods.Version;
+import McForgeMods.VersionIntervalle;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -10,14 +12,20 @@ import org.json.JSONTokener;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @see Mod
  * @see PaquetMinecraft
  */
 public class DepotLocal extends Depot {
-	public final static String MODS = "Mods.json";
+	public final static String MODS    = "Mods.json";
+	/** Versions sans installation possible, calculées par {@link Depot#elagage()} pour l'index. */
+	public final static String ELAGAGE = "Elagage.json";
 	
 	public final Path dossier;
 	
@@ -47,10 +55,22 @@ public class DepotLocal extends Depot {
 		return dossier.resolve("cache").resolve(modVersion.modid);
 	}
 	
+	/**
+	 * @return {@code true} si l'archive de cette version du mod a déjà été téléchargée dans le cache.
+	 * @see DepotInstallation#telechargementPaquet
+	 */
+	public boolean enCache(final String modid, final Version version) {
+		return Files.exists(dossier.resolve("cache").resolve(modid + "-" + version + ".tar"));
+	}
+	
 	private File fichierIndexDepot() {
 		return dossier.resolve(MODS).toFile();
 	}
 	
+	private File fichierElagage() {
+		return dossier.resolve(ELAGAGE).toFile();
+	}
+	
 	/**
 	 * Analyse le fichier d'index pour importer les mods. L'index doit être un JSON dont les clés au premier niveau sont
 	 * les modids.
@@ -88,11 +108,37 @@ public class DepotLocal extends Depot {
 		} catch (JSONException je) {
 			throw new JSONException("Erreur lecture fichier '" + MODS + "'", je);
 		}
+		
+		final File ELAGAGE = fichierElagage();
+		if (ELAGAGE.exists()) try (FileInputStream fichier = new FileInputStream(ELAGAGE)) {
+			lectureElagage(fichier);
+		} catch (JSONException je) {
+			throw new JSONException("Erreur lecture fichier '" + ELAGAGE + "'", je);
+		}
+	}
+	
+	/**
+	 * Lit les versions sans installation possible. Le fichier est un JSON dont les clés au premier niveau sont les
+	 * zones de versions de minecraft, puis les modids associés à leurs versions écartées.
+	 */
+	private void lectureElagage(final InputStream input) throws JSONException {
+		final JSONObject zones = new JSONObject(new JSONTokener(new BufferedInputStream(input)));
+		for (final String zone : zones.keySet()) {
+			final JSONObject mods = zones.getJSONObject(zone);
+			final Set<PaquetMinecraft> mortes = new HashSet<>();
+			for (final String modid : mods.keySet()) {
+				final JSONArray versions = mods.getJSONArray(modid);
+				for (int i = 0; i < versions.length(); i++)
+					this.getModVersion(modid, Version.read(versions.getString(i))).ifPresent(mortes::add);
+			}
+			this.elagage(VersionIntervalle.read(zone), mortes);
+		}
 	}
 	
 	/**
 	 * Enregistre la liste des mods dans le fichier <i>Mods.json</i> à la racine du dépôt. Sauvegarde une partie des
-	 * informations de {@link PaquetMinecraft} pour un aperçu rapide.
+	 * informations de {@link PaquetMinecraft} pour un aperçu rapide. Les versions sans installation possible sont
+	 * sauvegardées à côté, dans <i>Elagage.json</i>, si elles ont été calculées.
 	 */
 	public void sauvegarde() throws IOException {
 		if (!this.dossier.toFile().exists() && !this.dossier.toFile().mkdirs()) return;
@@ -101,6 +147,24 @@ public class DepotLocal extends Depot {
 			 BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fichier)) {
 			ecritureFichierIndex(bufferedOutputStream, this.dossier.toUri());
 		}
+		
+		// un élagage absent ou périmé ne doit pas survivre au nouvel index
+		if (this.mortes.isEmpty()) {
+			if (fichierElagage().exists() && !fichierElagage().delete())
+				System.err.println("Impossible de supprimer '" + fichierElagage() + "'");
+			return;
+		}
+		final JSONObject zones = new JSONObject();
+		for (final Map.Entry<VersionIntervalle, Set<PaquetMinecraft>> zone : this.mortes.entrySet()) {
+			final JSONObject mods = new JSONObject();
+			for (final PaquetMinecraft paquet : zone.getValue())
+				mods.append(paquet.modid, paquet.version.toString());
+			zones.put(zone.getKey().toString(), mods);
+		}
+		try (FileOutputStream fichier = new FileOutputStream(fichierElagage());
+			 OutputStreamWriter writer = new OutputStreamWriter(new BufferedOutputStream(fichier))) {
+			zones.write(writer, 4, 0);
+		}
 	}
 	
 	/**
@@ -141,7 +205,7 @@ public class DepotLocal extends Depot {
 	 * Si des versions de mods sont sauvegardées localement, une minimum d'information est conservé.
 	 */
 	public void clear() {
-		this.mod_version.clear();
+		super.clear();
 	}
 	
 	/**
@@ -0,0 +1,50 @@
+package McForgeMods.solveur;
+
+/**
+ * Limites d'une résolution: durée, nombre de décisions et nombre de retours en arrière. Une limite nulle n'est pas
+ * appliquée.
+ * <p>
+ * Le budget est consulté entre deux décisions, quand la propagation n'a trouvé aucun conflit: une résolution épuisée
+ * s'arrête sur une affectation partielle cohérente, voir {@link Solveur#solutionPartielle()}.
+ */
+public class Budget {
+	/** Aucune limite. */
+	public static final Budget ILLIMITE = new Budget(0, 0, 0);
+	
+	/** Durée maximale en millisecondes. */
+	public final long duree;
+	/** Nombre maximal de décisions. */
+	public final long decisions;
+	/** Nombre maximal de retours en arrière, après un échec ou une borne d'optimisation. */
+	public final long retours;
+	
+	public Budget(long duree, long decisions, long retours) {
+		this.duree = duree;
+		this.decisions = decisions;
+		this.retours = retours;
+	}
+	
+	/**
+	 * @param debut     début de la résolution, selon {@link System#nanoTime()}.
+	 * @param decisions décisions prises depuis le début.
+	 * @param retours   retours en arrière depuis le début.
+	 * @return {@code true} si une des limites est atteinte.
+	 */
+	boolean epuise(final long debut, final long decisions, final long retours) {
+		return this.decisions > 0 && decisions >= this.decisions || this.retours > 0 && retours >= this.retours
+				|| this.duree > 0 && System.nanoTime() - debut >= this.duree * 1_000_000;
+	}
+	
+	/** Budget restant après une partie de la résolution. Une limite atteinte reste minimale plutôt que nulle. */
+	Budget restant(final long debut, final long decisions, final long retours) {
+		final long ecoule = (System.nanoTime() - debut) / 1_000_000;
+		return new Budget(this.duree > 0 ? Math.max(1, this.duree - ecoule) : 0,
+				this.decisions > 0 ? Math.max(1, this.decisions - decisions) : 0,
+				this.retours > 0 ? Math.max(1, this.retours - retours) : 0);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Budget{duree=%d, decisions=%d, retours=%d}", duree, decisions, retours);
+	}
+}
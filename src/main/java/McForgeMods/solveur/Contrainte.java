@@ -1,6 +1,7 @@
 package McForgeMods.solveur;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 
 /**
@@ -8,21 +9,48 @@ import java.util.Collection;
  * <p>
  * Une contrainte doit préciser toutes les variables surveillées. Si une de ces variables est modifiée, la contrainte
  * devra être recalculée.
+ * <p>
+ * Les valeurs désactivées par une contrainte sont expliquées par l'état des autres variables de sa {@link #portee()}:
+ * le solveur s'en sert pour remonter aux décisions responsables d'un échec.
  *
  * @param <K>: type des variables
  * @param <D>: type des valeurs associées aux variables
  */
 public abstract class Contrainte<K, D> {
 	public final ArrayList<K> variables;
+	/** Indice attribué par le solveur lors de l'enregistrement. */
+	int   indice        = -1;
+	/** Indices des variables de la {@link #portee()}, attribués lors de l'enregistrement. */
+	int[] indicesPortee = null;
 	
 	/** Crée une contrainte et indique toutes les variables surveillées. */
 	public Contrainte(Collection<K> variables) {
 		this.variables = new ArrayList<>(variables);
 	}
 	
+	/**
+	 * Toutes les variables impliquées par la contrainte, surveillées ou modifiées. Par défaut, les variables
+	 * surveillées.
+	 */
+	public Collection<K> portee() {
+		return this.variables;
+	}
+	
 	/**
 	 * Vérifie la condition et peut désactiver certaines valeurs d'autres variables. Toute autre variable modifiée doit
 	 * être notifiée au solveur avec {@link Solveur#marquerVariable(Object)} pour propager à nouveau les contraintes.
+	 * <p>
+	 * Les modifications faites par une contrainte ne la remettent pas en file: une révision doit atteindre son point
+	 * fixe.
 	 */
 	public abstract void reductionArc(Solveur<K, D> solveur);
+	
+	/**
+	 * Sépare les valeurs d'une variable de la {@link #portee()} que la contrainte distingue. Le bit {@code r} de {@code
+	 * classes} lie les rangs {@code r} et {@code r + 1}: il reste à 1 seulement si échanger ces deux valeurs ne change
+	 * jamais les valeurs désactivées par la contrainte. Par défaut, toutes les valeurs sont séparées.
+	 */
+	public void separation(K variable, BitSet classes) {
+		classes.clear();
+	}
 }
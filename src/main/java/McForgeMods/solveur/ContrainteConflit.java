@@ -11,6 +11,9 @@ import java.util.Objects;
  * <p>
  * Si le paquet est choisi, alors toutes les versions en conflits doivent être désactivées. Si le paquet opposé ne
  * dispose plus que des versions conflictuelles, alors la version du paquet actuel doit être désactivée.
+ * <p>
+ * Le {@link SolveurPaquet} n'utilise pas cette contrainte: il compile les conflits de toutes les versions d'un mod en
+ * une {@link ContrainteExclusion}, propagée par intervalles de rangs.
  */
 public class ContrainteConflit<K> extends Contrainte<K, Version> {
 	private final K                 paquet_id;
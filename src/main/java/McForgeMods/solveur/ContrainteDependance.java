@@ -3,6 +3,8 @@ package McForgeMods.solveur;
 import McForgeMods.Version;
 import McForgeMods.VersionIntervalle;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
 
@@ -25,6 +27,11 @@ public class ContrainteDependance extends Contrainte<String, Version> {
 		this.version_dep = version_dep;
 	}
 	
+	@Override
+	public Collection<String> portee() {
+		return Arrays.asList(modid, modid_dep);
+	}
+	
 	public void reductionArc(final Solveur<String, Version> solveur) {
 		if (!solveur.domaineVariable(modid).contains(version)) return;
 		
@@ -0,0 +1,90 @@
+package McForgeMods.solveur;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Conflits de toutes les versions d'un mod envers un autre mod, compilés en table.
+ * <p>
+ * Comme pour {@link ContrainteTable}, chaque rang du mod reçoit un intervalle de rangs de l'autre mod: les valeurs
+ * exclues par la sienne. Une valeur du mod est désactivée si toutes les valeurs actives de l'autre mod sont exclues.
+ * Quand le mod est fixé, les valeurs qu'il exclut sont désactivées. Chaque rang conserve le dernier support trouvé
+ * hors de son intervalle.
+ *
+ * @param <K>: type des variables
+ * @param <D>: type des valeurs associées aux variables
+ */
+public class ContrainteExclusion<K, D> extends Contrainte<K, D> {
+	final K id, id_conflit;
+	/** Premier rang de l'autre mod exclu par chaque rang du mod, {@code -1} si le rang n'exclut rien. */
+	private final int[] debuts;
+	/** Rang suivant le dernier rang exclu. */
+	private final int[] fins;
+	/** Dernier support trouvé hors de l'intervalle exclu. */
+	private final int[] residus;
+	
+	/**
+	 * @param debuts pour chaque rang du domaine de {@code id}, le premier rang exclu de {@code id_conflit}, {@code -1}
+	 *               si la valeur n'exclut rien.
+	 * @param fins   rang suivant le dernier rang exclu.
+	 */
+	public ContrainteExclusion(final K id, final K id_conflit, final int[] debuts, final int[] fins) {
+		super(Arrays.asList(id, id_conflit));
+		this.id = id;
+		this.id_conflit = id_conflit;
+		this.debuts = debuts;
+		this.fins = fins;
+		this.residus = new int[debuts.length];
+	}
+	
+	@Override
+	public void reductionArc(final Solveur<K, D> solveur) {
+		final Domaine<D> domaine = solveur.domaineVariable(this.id);
+		final Domaine<D> domaine_conflit = solveur.domaineVariable(this.id_conflit);
+		if (domaine.size() == 0 || domaine_conflit.size() == 0) return;
+		
+		// l'autre mod ne dispose plus que de versions exclues
+		if (domaine.removeIfRang(rang -> !this.supporte(rang, domaine_conflit))) solveur.marquerVariable(this.id);
+		// la version a été choisie, les versions exclues sont désactivées
+		if (domaine.size() == 1) {
+			final int rang = domaine.rang(0), debut = this.debuts[rang], fin = this.fins[rang];
+			if (debut >= 0 && domaine_conflit.retraitRangs(debut, fin))
+				solveur.marquerVariable(this.id_conflit);
+		}
+	}
+	
+	/** Cherche une valeur active de l'autre mod hors de l'intervalle exclu, en commençant par le support résiduel. */
+	private boolean supporte(final int rang, final Domaine<D> domaine_conflit) {
+		final int debut = this.debuts[rang], fin = this.fins[rang];
+		if (debut < 0) return true;
+		final int residu = this.residus[rang];
+		if ((residu < debut || residu >= fin) && domaine_conflit.actif(residu)) return true;
+		int support = domaine_conflit.suivant(0, debut);
+		if (support < 0) support = domaine_conflit.suivant(fin, domaine_conflit.capacite());
+		if (support < 0) return false;
+		this.residus[rang] = support;
+		return true;
+	}
+	
+	/**
+	 * Deux rangs consécutifs du mod restent liés s'ils ont le même intervalle, deux rangs consécutifs de l'autre mod si
+	 * aucun intervalle ne commence ou ne finit entre eux.
+	 */
+	@Override
+	public void separation(final K variable, final BitSet classes) {
+		if (variable.equals(this.id)) {
+			for (int rang = classes.nextSetBit(0); rang >= 0; rang = classes.nextSetBit(rang + 1))
+				if (this.debuts[rang] != this.debuts[rang + 1] || this.fins[rang] != this.fins[rang + 1])
+					classes.clear(rang);
+		} else for (int rang = 0; rang < this.debuts.length; rang++)
+			if (this.debuts[rang] >= 0) {
+				if (this.debuts[rang] > 0) classes.clear(this.debuts[rang] - 1);
+				if (this.fins[rang] > 0) classes.clear(this.fins[rang] - 1);
+			}
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Exclusion {%s => !%s}", id, id_conflit);
+	}
+}
@@ -0,0 +1,59 @@
+package McForgeMods.solveur;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Contrainte qui ne s'applique que lorsqu'une variable de garde est fixée sur sa valeur active.
+ * <p>
+ * Restreindre la garde à la valeur active pose la contrainte, la libérer la retire: une hypothèse d'une {@link
+ * SessionSolveur} suffit à activer ou non la contrainte, sans reconstruire le solveur. Tant que la garde peut prendre
+ * une autre valeur, la contrainte ne désactive rien et la recherche reste libre de l'ignorer.
+ *
+ * @param <K>: type des variables
+ * @param <D>: type des valeurs associées aux variables
+ */
+public class ContrainteGardee<K, D> extends Contrainte<K, D> {
+	private final K                garde;
+	private final D                active;
+	private final Contrainte<K, D> contrainte;
+	
+	public ContrainteGardee(final K garde, final D active, final Contrainte<K, D> contrainte) {
+		super(variables(garde, contrainte.variables));
+		this.garde = garde;
+		this.active = active;
+		this.contrainte = contrainte;
+	}
+	
+	private static <K> List<K> variables(final K garde, final Collection<K> variables) {
+		final List<K> toutes = new ArrayList<>(variables.size() + 1);
+		toutes.add(garde);
+		toutes.addAll(variables);
+		return toutes;
+	}
+	
+	@Override
+	public Collection<K> portee() {
+		return variables(this.garde, this.contrainte.portee());
+	}
+	
+	@Override
+	public void reductionArc(final Solveur<K, D> solveur) {
+		final Domaine<D> domaine = solveur.domaineVariable(this.garde);
+		if (domaine.size() == 1 && domaine.contains(this.active)) this.contrainte.reductionArc(solveur);
+	}
+	
+	/** Les valeurs de la garde sont toujours séparées, les autres selon la contrainte gardée. */
+	@Override
+	public void separation(final K variable, final BitSet classes) {
+		if (variable.equals(this.garde)) classes.clear();
+		else this.contrainte.separation(variable, classes);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Garde {%s => %s}", this.garde, this.contrainte);
+	}
+}
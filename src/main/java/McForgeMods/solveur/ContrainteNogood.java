@@ -0,0 +1,48 @@
+package McForgeMods.solveur;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Combinaison de valeurs interdite, apprise par le solveur lors d'un échec de la résolution.
+ * <p>
+ * Les variables ne peuvent pas toutes prendre leur valeur: lorsque toutes sauf une sont fixées sur la valeur
+ * interdite, la valeur est désactivée de la dernière variable.
+ *
+ * @param <K>: type des variables
+ * @param <D>: type des valeurs associées aux variables
+ */
+public class ContrainteNogood<K, D> extends Contrainte<K, D> {
+	private final ArrayList<D> valeurs;
+	
+	public ContrainteNogood(final List<K> variables, final List<D> valeurs) {
+		super(variables);
+		assert variables.size() == valeurs.size();
+		this.valeurs = new ArrayList<>(valeurs);
+	}
+	
+	@Override
+	public void reductionArc(Solveur<K, D> solveur) {
+		int libre = -1;
+		for (int i = 0; i < this.valeurs.size(); i++) {
+			final Domaine<D> domaine = solveur.domaineVariable(this.variables.get(i));
+			if (!domaine.contains(this.valeurs.get(i))) return;
+			if (domaine.size() > 1) {
+				if (libre >= 0) return;
+				libre = i;
+			}
+		}
+		// toutes les valeurs sont choisies: le domaine de la dernière variable est vidé
+		if (libre < 0) libre = this.valeurs.size() - 1;
+		solveur.domaineVariable(this.variables.get(libre)).remove(this.valeurs.get(libre));
+	}
+	
+	@Override
+	public String toString() {
+		final StringJoiner join = new StringJoiner(", ", "Nogood {", "}");
+		for (int i = 0; i < this.valeurs.size(); i++)
+			join.add(this.variables.get(i) + "==" + this.valeurs.get(i));
+		return join.toString();
+	}
+}
@@ -0,0 +1,90 @@
+package McForgeMods.solveur;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Dépendances de toutes les versions d'un mod envers un même mod, compilées en table.
+ * <p>
+ * Les valeurs de la dépendance doivent être triées dans son domaine: chaque rang du mod reçoit alors l'intervalle des
+ * rangs des valeurs qui le satisfont, calculé une fois à la construction. La révision ne compare plus aucune version,
+ * une valeur du mod sans rang actif dans son intervalle est désactivée.
+ * <p>
+ * Le dernier support trouvé pour chaque rang est conservé (<i>support résiduel</i>, AC-2001): tant qu'il reste actif,
+ * la valeur est supportée en temps constant. Un support résiduel n'est qu'un point de départ de la recherche, il n'a
+ * pas besoin d'être restauré par l'historique et peut être partagé entre les copies du solveur.
+ *
+ * @param <K>: type des variables
+ * @param <D>: type des valeurs associées aux variables
+ */
+public class ContrainteTable<K, D> extends Contrainte<K, D> {
+	final K id, id_dep;
+	/** Premier rang de la dépendance qui supporte chaque rang du mod, {@code -1} si le rang est libre. */
+	private final int[] debuts;
+	/** Rang suivant le dernier support de chaque rang du mod. */
+	private final int[] fins;
+	/** Dernier support trouvé pour chaque rang. */
+	private final int[] residus;
+	
+	/**
+	 * @param debuts pour chaque rang du domaine de {@code id}, le premier rang de {@code id_dep} accepté, {@code -1}
+	 *               si la valeur ne dépend pas de {@code id_dep}.
+	 * @param fins   rang suivant le dernier rang accepté.
+	 */
+	public ContrainteTable(final K id, final K id_dep, final int[] debuts, final int[] fins) {
+		super(Collections.singleton(id_dep));
+		this.id = id;
+		this.id_dep = id_dep;
+		this.debuts = debuts;
+		this.fins = fins;
+		this.residus = debuts.clone();
+	}
+	
+	@Override
+	public Collection<K> portee() {
+		return Arrays.asList(id, id_dep);
+	}
+	
+	@Override
+	public void reductionArc(final Solveur<K, D> solveur) {
+		final Domaine<D> domaine_dep = solveur.domaineVariable(this.id_dep);
+		if (solveur.domaineVariable(this.id).removeIfRang(rang -> !this.supporte(rang, domaine_dep)))
+			solveur.marquerVariable(this.id);
+	}
+	
+	/** Cherche un support actif, en commençant par le support résiduel, puis mot par mot dans l'intervalle. */
+	private boolean supporte(final int rang, final Domaine<D> domaine_dep) {
+		final int debut = this.debuts[rang], fin = this.fins[rang];
+		if (debut < 0) return true;
+		final int residu = this.residus[rang];
+		if (residu < fin && domaine_dep.actif(residu)) return true;
+		final int support = domaine_dep.suivant(debut, fin);
+		if (support < 0) return false;
+		this.residus[rang] = support;
+		return true;
+	}
+	
+	/**
+	 * Deux rangs consécutifs du mod restent liés s'ils ont le même intervalle, deux rangs consécutifs de l'autre mod si
+	 * aucun intervalle ne commence ou ne finit entre eux.
+	 */
+	@Override
+	public void separation(final K variable, final BitSet classes) {
+		if (variable.equals(this.id)) {
+			for (int rang = classes.nextSetBit(0); rang >= 0; rang = classes.nextSetBit(rang + 1))
+				if (this.debuts[rang] != this.debuts[rang + 1] || this.fins[rang] != this.fins[rang + 1])
+					classes.clear(rang);
+		} else for (int rang = 0; rang < this.debuts.length; rang++)
+			if (this.debuts[rang] >= 0) {
+				if (this.debuts[rang] > 0) classes.clear(this.debuts[rang] - 1);
+				if (this.fins[rang] > 0) classes.clear(this.fins[rang] - 1);
+			}
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Table {%s => %s}", id, id_dep);
+	}
+}
@@ -0,0 +1,222 @@
+package McForgeMods.solveur;
+
+import McForgeMods.Version;
+import McForgeMods.VersionIntervalle;
+import McForgeMods.depot.Depot;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Explication d'un échec de résolution par un ensemble minimal d'éléments incompatibles (<i>QuickXplain</i>).
+ * <p>
+ * L'ensemble trouvé est incohérent, et le retrait de n'importe lequel de ses éléments le rend cohérent. La recherche
+ * découpe les éléments en deux moitiés et ne teste que des ensembles construits en pile: chaque élément ajouté est
+ * retiré avant ceux ajoutés plus tôt. Une {@link SessionSolveur} pose ainsi chaque élément comme une hypothèse, sans
+ * jamais reconstruire ni repropager la base, voir {@link SessionSolveur#conflitMinimal()}.
+ * <p>
+ * Un test interrompu par le budget du solveur ne conclut rien: il n'est jamais compté comme un conflit, la recherche
+ * s'arrête par une {@link Interruption}.
+ */
+public final class Diagnostic {
+	private Diagnostic() {
+	}
+	
+	/** Ensemble d'éléments construit en pile, dont la cohérence peut être testée. */
+	public interface Pile<T> {
+		void ajout(T element);
+		
+		/** Retire le dernier élément ajouté. */
+		void retrait();
+		
+		/** @return {@code true} si les éléments posés admettent une solution. */
+		boolean coherente();
+		
+		/** @return {@code true} si le dernier test de {@link #coherente()} a été interrompu avant de conclure. */
+		default boolean interrompue() {
+			return false;
+		}
+	}
+	
+	/** Un test de cohérence a été interrompu: l'ensemble minimal est inconnu. La pile retrouve son contenu initial. */
+	public static class Interruption extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		
+		public Interruption() {
+			super("Recherche d'un conflit minimal interrompue par le budget");
+		}
+	}
+	
+	/**
+	 * Cherche un sous-ensemble minimal incohérent des éléments, ajoutés au contenu actuel de la pile. La pile retrouve
+	 * son contenu initial à la fin.
+	 *
+	 * @return le sous-ensemble dans l'ordre des éléments, vide si la pile seule est incohérente, {@code null} si tous
+	 * les éléments ensemble restent cohérents.
+	 * @throws Interruption si un test n'a pas conclu.
+	 */
+	public static <T> List<T> quickXplain(final Pile<T> pile, final List<T> elements) {
+		if (!coherente(pile)) return Collections.emptyList();
+		elements.forEach(pile::ajout);
+		final boolean coherente;
+		try {
+			coherente = coherente(pile);
+		} finally {
+			elements.forEach(element -> pile.retrait());
+		}
+		if (coherente) return null;
+		return quickXplain(pile, false, elements);
+	}
+	
+	/** Teste la pile, un test interrompu arrête la recherche. */
+	private static boolean coherente(final Pile<?> pile) {
+		if (pile.coherente()) return true;
+		if (pile.interrompue()) throw new Interruption();
+		return false;
+	}
+	
+	/**
+	 * @param delta des éléments viennent d'être ajoutés: si la pile est déjà incohérente, aucun élément de {@code
+	 *              candidats} n'est nécessaire.
+	 */
+	private static <T> List<T> quickXplain(final Pile<T> pile, final boolean delta, final List<T> candidats) {
+		if (delta && !coherente(pile)) return Collections.emptyList();
+		if (candidats.size() == 1) return candidats;
+		final List<T> premiers = candidats.subList(0, candidats.size() / 2);
+		final List<T> derniers = candidats.subList(candidats.size() / 2, candidats.size());
+		
+		premiers.forEach(pile::ajout);
+		final List<T> conflitDerniers;
+		try {
+			conflitDerniers = quickXplain(pile, true, derniers);
+		} finally {
+			premiers.forEach(element -> pile.retrait());
+		}
+		
+		conflitDerniers.forEach(pile::ajout);
+		final List<T> conflitPremiers;
+		try {
+			conflitPremiers = quickXplain(pile, !conflitDerniers.isEmpty(), premiers);
+		} finally {
+			conflitDerniers.forEach(element -> pile.retrait());
+		}
+		
+		final List<T> conflit = new ArrayList<>(conflitPremiers);
+		conflit.addAll(conflitDerniers);
+		return conflit;
+	}
+	
+	/** Dépendance ou conflit déclaré par les versions d'un mod envers un autre mod. */
+	public static class Arete {
+		public final String  modid;
+		public final String  cible;
+		/** {@code true} pour un conflit, {@code false} pour une dépendance. */
+		public final boolean conflit;
+		
+		public Arete(String modid, String cible, boolean conflit) {
+			this.modid = modid;
+			this.cible = cible;
+			this.conflit = conflit;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			final Arete arete = (Arete) o;
+			return conflit == arete.conflit && modid.equals(arete.modid) && cible.equals(arete.cible);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(modid, cible, conflit);
+		}
+		
+		@Override
+		public String toString() {
+			return modid + (conflit ? " en conflit avec " : " dépend de ") + cible;
+		}
+	}
+	
+	/**
+	 * Cherche un ensemble minimal de dépendances et de conflits qui rendent des demandes incompatibles, les autres
+	 * étant ignorés. Les mods atteignables depuis les demandes sont chargés une seule fois dans une {@link
+	 * SessionSolveur}, chaque arête gardée par sa propre variable (voir {@link ContrainteGardee}): poser une arête est
+	 * une hypothèse de la session, la retirer revient au niveau précédent. Il vaut mieux réduire d'abord les demandes
+	 * par {@link SessionSolveur#conflitMinimal()}. Les exigences envers {@code minecraft} sont toujours conservées.
+	 *
+	 * @param declarations mods absents du dépôt avec leurs versions, comme forge.
+	 * @param budget       limites de chaque test.
+	 * @return les arêtes en cause, vide si les demandes sont incompatibles sans elles, {@code null} si les demandes
+	 * sont compatibles.
+	 * @throws Interruption si un test n'a pas conclu dans le budget.
+	 */
+	public static List<Arete> aretes(final Depot depot, final Version minecraft,
+			final Map<String, ? extends Collection<Version>> declarations,
+			final Map<String, Predicate<Version>> demandes, final Budget budget) {
+		final SolveurAretes solveur = new SolveurAretes(depot, minecraft);
+		final SessionSolveur session = new SessionSolveur(solveur);
+		session.budget(budget);
+		declarations.forEach(session::ajoutVariable);
+		// les demandes forment la base, sous les arêtes
+		demandes.forEach(session::restriction);
+		return quickXplain(new Pile<Arete>() {
+			@Override
+			public void ajout(Arete arete) {
+				session.restriction(solveur.gardes.get(arete), SolveurAretes.ACTIVE::equals);
+			}
+			
+			@Override
+			public void retrait() {
+				session.retrait();
+			}
+			
+			@Override
+			public boolean coherente() {
+				return session.resolution();
+			}
+			
+			@Override
+			public boolean interrompue() {
+				return session.interrompue();
+			}
+		}, new ArrayList<>(solveur.gardes.keySet()));
+	}
+	
+	/** Solveur de paquets dont chaque dépendance ou conflit entre deux mods est gardé par une variable. */
+	private static class SolveurAretes extends SolveurPaquet {
+		/** Valeur de la garde d'une arête posée, {@code null} la laisse libre. */
+		static final Version ACTIVE = new Version(1, 0, 0);
+		
+		/** Variable de garde de chaque arête, dans l'ordre de chargement. */
+		final Map<Arete, String> gardes = new LinkedHashMap<>();
+		
+		SolveurAretes(final Depot depot, final Version minecraft) {
+			super(depot, minecraft);
+		}
+		
+		@Override
+		void ajoutArete(final String modid, final String cible, final boolean conflit,
+				final Contrainte<String, Version> contrainte) {
+			if (cible.equals("minecraft")) {
+				super.ajoutArete(modid, cible, conflit, contrainte);
+				return;
+			}
+			final Arete arete = new Arete(modid, cible, conflit);
+			// le nom de la garde contient des espaces, il ne peut pas être celui d'un mod
+			final String garde = arete.toString();
+			this.gardes.put(arete, garde);
+			this.ajoutVariable(garde, Arrays.asList(null, ACTIVE));
+			super.ajoutArete(modid, cible, conflit, new ContrainteGardee<>(garde, ACTIVE, contrainte));
+		}
+		
+		/**
+		 * Une arête retirée ne peut écarter aucune version au chargement: seules les exigences envers minecraft, jamais
+		 * retirées, élaguent les versions.
+		 */
+		@Override
+		boolean possible(final String modid, final VersionIntervalle intervalle) {
+			return !modid.equals("minecraft") || super.possible(modid, intervalle);
+		}
+	}
+}
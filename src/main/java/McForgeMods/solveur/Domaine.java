@@ -1,45 +1,192 @@
 package McForgeMods.solveur;
 
 import java.util.*;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Le domaine de valeurs disponibles pour une variable.
  * <p>
- * Les valeurs du domaine ne sont jamais perdus, {@link #push()} permet de sauvegarder l'état du domaine et {@link
- * #pop()} restaure le dernier état de l'historique.
+ * Chaque valeur reçoit un rang fixe, son indice dans l'ordre initial. L'état du domaine est un ensemble de bits, un
+ * par rang, à 1 si la valeur est active: les valeurs actives se parcourent dans l'ordre initial, {@link #premier()}
+ * est le premier bit actif, et un intervalle de rangs se teste ou se désactive mot par mot, avec un masque.
+ * <p>
+ * Avant la première modification d'un niveau de décision, l'{@link Historique} du solveur conserve le tableau de mots
+ * actuel et le domaine se poursuit sur une copie: revenir en arrière rétablit le tableau conservé d'un seul coup, sans
+ * rejouer les suppressions. {@link #push()} et {@link #pop()} font de même hors de toute résolution.
  */
 public class Domaine<D> implements Iterable<D> {
-	private final LinkedList<D>  valeurs;
-	private final Deque<Integer> limites = new LinkedList<>();
-	private       int            limite;
+	/** Toutes les valeurs, dans l'ordre initial. */
+	private final D[]             valeurs;
+	/** Rang de chaque valeur dans {@link #valeurs}, partagé avec les copies du domaine. */
+	private final Map<D, Integer> rangs;
+	/** Un bit par rang, à 1 si la valeur est active. */
+	private       long[]          bits;
+	/** Nombre de valeurs actives. */
+	private       int             taille;
+	/** Instantanés de {@link #push()}: les mots et le nombre de valeurs actives. */
+	private       long[][]        instantanes = new long[4][];
+	private       int[]           tailles     = new int[4];
+	private       int             hauteur     = 0;
+	
+	/** Solveur propriétaire, informé de chaque modification. */
+	Solveur<?, D> solveur     = null;
+	/** Indice de la variable dans le {@link #solveur}. */
+	int           indice      = -1;
+	/** Niveau de décision de la dernière sauvegarde dans l'historique du solveur. */
+	int           niveau      = 0;
+	/** Niveaux des décisions ayant provoqué les suppressions de valeurs actuelles. */
+	BitSet        explication = new BitSet();
 	
+	@SuppressWarnings("unchecked")
 	public Domaine(Collection<D> valeurs) {
-		this.valeurs = new LinkedList<>(valeurs);
-		this.limite = this.valeurs.size();
+		this.valeurs = (D[]) valeurs.toArray();
+		this.rangs = new HashMap<>(this.valeurs.length * 2);
+		for (int i = 0; i < this.valeurs.length; i++)
+			this.rangs.putIfAbsent(this.valeurs[i], i);
+		this.bits = plein(this.valeurs.length);
+		this.taille = this.valeurs.length;
+	}
+	
+	/**
+	 * Copie l'état actuel d'un domaine, sans solveur ni historique. Les valeurs et leurs rangs ne changent jamais, ils
+	 * sont partagés avec la source.
+	 */
+	Domaine(final Domaine<D> source) {
+		this.valeurs = source.valeurs;
+		this.rangs = source.rangs;
+		this.bits = source.bits.clone();
+		this.taille = source.taille;
+	}
+	
+	/** Mots dont les {@code capacite} premiers bits sont à 1. */
+	private static long[] plein(final int capacite) {
+		final long[] bits = new long[(capacite + 63) >>> 6];
+		Arrays.fill(bits, -1L);
+		if ((capacite & 63) != 0) bits[bits.length - 1] = -1L >>> (64 - (capacite & 63));
+		return bits;
 	}
 	
 	public int size() {
-		return this.limite;
+		return this.taille;
 	}
 	
+	/** Renvoit la i-ème valeur active, dans l'ordre initial. */
 	public D get(int i) {
-		return this.valeurs.get(i);
+		return this.valeurs[this.rang(i)];
 	}
 	
-	public boolean contains(final D v) {
-		for (int i = 0; i < this.size(); i++) {
-			if (Objects.equals(this.get(i), v)) return true;
+	/**
+	 * Renvoit la valeur active la mieux placée dans l'ordre initial du domaine.
+	 *
+	 * @return la valeur préférée ou {@code null} si le domaine est vide.
+	 */
+	public D premier() {
+		final int rang = this.suivant(0, this.valeurs.length);
+		return rang < 0 ? null : this.valeurs[rang];
+	}
+	
+	/** Nombre total de valeurs, actives ou non. */
+	int capacite() {
+		return this.valeurs.length;
+	}
+	
+	/** Rang dans l'ordre initial de la i-ème valeur active. */
+	int rang(int i) {
+		if (i < 0 || i >= this.taille) throw new IndexOutOfBoundsException("Valeur active " + i + "/" + this.taille);
+		for (int mot = 0; ; mot++) {
+			final int actifs = Long.bitCount(this.bits[mot]);
+			if (i < actifs) {
+				long reste = this.bits[mot];
+				for (; i > 0; i--)
+					reste &= reste - 1;
+				return (mot << 6) + Long.numberOfTrailingZeros(reste);
+			}
+			i -= actifs;
 		}
-		return false;
+	}
+	
+	/** Rang d'une valeur dans l'ordre initial, {@code -1} si elle n'appartient pas au domaine. */
+	int rangValeur(final D v) {
+		return this.rangs.getOrDefault(v, -1);
+	}
+	
+	/** Valeur occupant un rang de l'ordre initial. */
+	D valeurRang(final int rang) {
+		return this.valeurs[rang];
+	}
+	
+	/** Mot de l'état actif contenant les rangs {@code [64 * mot, 64 * mot + 64)}. */
+	long mot(final int mot) {
+		return this.bits[mot];
+	}
+	
+	/** @return {@code true} si la valeur de ce rang est active. */
+	boolean actif(final int rang) {
+		return (this.bits[rang >>> 6] & 1L << rang) != 0;
+	}
+	
+	/** @return le premier rang actif de {@code [debut, fin)}, {@code -1} s'il n'y en a pas. */
+	int suivant(final int debut, final int fin) {
+		if (debut >= fin) return -1;
+		final int dernier = (fin - 1) >>> 6;
+		int mot = debut >>> 6;
+		long masque = -1L << debut;
+		for (; mot <= dernier; mot++, masque = -1L) {
+			if (mot == dernier) masque &= -1L >>> (63 - ((fin - 1) & 63));
+			final long actifs = this.bits[mot] & masque;
+			if (actifs != 0) return (mot << 6) + Long.numberOfTrailingZeros(actifs);
+		}
+		return -1;
+	}
+	
+	public boolean contains(final D v) {
+		final Integer rang = this.rangs.get(v);
+		return rang != null && this.actif(rang);
+	}
+	
+	/** Prévient l'historique du solveur avant une modification, le domaine continue alors sur une copie des mots. */
+	private void sauvegarde() {
+		if (this.solveur != null && this.solveur.historique.sauvegarde(this, this.bits, this.taille))
+			this.bits = this.bits.clone();
+	}
+	
+	/** Prévient le solveur qu'une modification a eu lieu. */
+	private void notification() {
+		if (this.solveur != null) this.solveur.modification(this.indice);
+	}
+	
+	/** Rétablit un état enregistré par {@link Historique#sauvegarde(Domaine, long[], int)}. */
+	void restauration(final long[] bits, final int taille, final int niveau, final BitSet explication) {
+		final long[] avant = this.bits;
+		this.bits = bits;
+		this.taille = taille;
+		this.niveau = niveau;
+		this.explication = explication;
+		if (this.solveur != null) this.solveur.restauration(this.indice, avant);
+	}
+	
+	/**
+	 * Désactive les rangs actifs d'un masque dans un mot, sans prévenir le solveur.
+	 *
+	 * @return {@code true} si au moins un rang était actif.
+	 */
+	private boolean retrait(final int mot, final long masque) {
+		final long retires = this.bits[mot] & masque;
+		if (retires == 0) return false;
+		this.sauvegarde();
+		this.bits[mot] &= ~retires;
+		this.taille -= Long.bitCount(retires);
+		return true;
 	}
 	
 	protected boolean remove(final int i) {
-		if (0 <= i && i < this.limite) {
-			this.valeurs.add(this.limite, this.get(i));
-			this.valeurs.remove(i);
-			this.limite--;
+		if (0 <= i && i < this.taille) {
+			final int rang = this.rang(i);
+			this.retrait(rang >>> 6, 1L << rang);
+			this.notification();
 			return true;
 		}
 		return false;
@@ -52,16 +199,46 @@ public class Domaine<D> implements Iterable<D> {
 	 * @return {@code true} si la valeur existe et a été désactivée
 	 */
 	public boolean remove(final D v) {
-		int i = this.valeurs.indexOf(v);
-		return this.remove(i);
+		final Integer rang = this.rangs.get(v);
+		if (rang == null || !this.retrait(rang >>> 6, 1L << rang)) return false;
+		this.notification();
+		return true;
 	}
 	
 	public boolean removeIf(Predicate<D> predicate) {
+		return this.removeIfRang(rang -> predicate.test(this.valeurs[rang]));
+	}
+	
+	/** Comme {@link #removeIf(Predicate)}, sur les rangs des valeurs. Les rangs retirés d'un mot le sont ensemble. */
+	boolean removeIfRang(final IntPredicate predicate) {
 		boolean modifie = false;
-		for (int i = this.size() - 1; i >= 0; i--)
-			if (predicate.test(this.get(i))) {
-				modifie |= this.remove(this.get(i));
+		for (int mot = 0; mot < this.bits.length; mot++) {
+			long masque = 0;
+			for (long actifs = this.bits[mot]; actifs != 0; actifs &= actifs - 1) {
+				final int rang = (mot << 6) + Long.numberOfTrailingZeros(actifs);
+				if (predicate.test(rang)) masque |= 1L << rang;
 			}
+			modifie |= this.retrait(mot, masque);
+		}
+		if (modifie) this.notification();
+		return modifie;
+	}
+	
+	/**
+	 * Désactive tous les rangs de {@code [debut, fin)}, un masque par mot.
+	 *
+	 * @return {@code true} si au moins une valeur a été désactivée.
+	 */
+	boolean retraitRangs(final int debut, final int fin) {
+		if (debut >= fin) return false;
+		boolean modifie = false;
+		final int dernier = (fin - 1) >>> 6;
+		long masque = -1L << debut;
+		for (int mot = debut >>> 6; mot <= dernier; mot++, masque = -1L) {
+			if (mot == dernier) masque &= -1L >>> (63 - ((fin - 1) & 63));
+			modifie |= this.retrait(mot, masque);
+		}
+		if (modifie) this.notification();
 		return modifie;
 	}
 	
@@ -71,45 +248,80 @@ public class Domaine<D> implements Iterable<D> {
 	 * @return {@code true} si cette valeur existe et qu'elle n'a pas déjà été désactivée.
 	 */
 	public boolean reduction(final D v) {
-		int i = this.valeurs.indexOf(v);
-		if (i == 0 && this.limite == 1) return false;
-		else if (i == 0 && this.limite > 1) {
-			this.limite = 1;
+		final Integer rang = this.rangs.get(v);
+		if (rang != null && this.actif(rang)) {
+			if (this.taille == 1) return false;
+			this.sauvegarde();
+			Arrays.fill(this.bits, 0);
+			this.bits[rang >>> 6] = 1L << rang;
+			this.taille = 1;
+			this.notification();
 			return true;
-		} else if (1 <= i && i < this.limite) {
-			Collections.swap(this.valeurs, 0, i);
-			this.limite = 1;
-			return true;
-		} else if (this.limite > 0) {
-			this.limite = 0;
+		} else if (this.taille > 0) {
+			this.sauvegarde();
+			Arrays.fill(this.bits, 0);
+			this.taille = 0;
+			this.notification();
 			return true;
 		}
 		return false;
 	}
 	
+	/**
+	 * Instantané de l'état du domaine, rétabli par {@link #pop()}. Réservé aux usages hors résolution, comme les tests:
+	 * la recherche du solveur revient en arrière par son {@link Historique}, qui ignore ces instantanés.
+	 */
 	public void push() {
-		this.limites.add(this.limite);
+		if (this.hauteur == this.instantanes.length) {
+			this.instantanes = Arrays.copyOf(this.instantanes, this.hauteur * 2);
+			this.tailles = Arrays.copyOf(this.tailles, this.hauteur * 2);
+		}
+		this.instantanes[this.hauteur] = this.bits.clone();
+		this.tailles[this.hauteur++] = this.taille;
 	}
 	
+	/** Rétablit le dernier instantané de {@link #push()}, ou toutes les valeurs s'il n'y en a plus. */
 	public void pop() {
-		if (this.limites.size() > 0) this.limite = this.limites.removeLast();
-		else this.limite = this.valeurs.size();
+		if (this.hauteur > 0) {
+			this.bits = this.instantanes[--this.hauteur];
+			this.instantanes[this.hauteur] = null;
+			this.taille = this.tailles[this.hauteur];
+		} else {
+			this.bits = plein(this.valeurs.length);
+			this.taille = this.valeurs.length;
+		}
 	}
 	
+	/** Parcourt les valeurs actives dans l'ordre initial. */
 	@Override
 	public Iterator<D> iterator() {
-		return this.valeurs.subList(0, this.limite).iterator();
+		return new Iterator<D>() {
+			int rang = suivant(0, valeurs.length);
+			
+			@Override
+			public boolean hasNext() {
+				return rang >= 0;
+			}
+			
+			@Override
+			public D next() {
+				if (rang < 0) throw new NoSuchElementException();
+				final D valeur = valeurs[rang];
+				rang = suivant(rang + 1, valeurs.length);
+				return valeur;
+			}
+		};
 	}
 	
 	public Stream<D> stream() {
-		return this.valeurs.subList(0, this.limite).stream();
+		return StreamSupport.stream(this.spliterator(), false);
 	}
 	
 	@Override
 	public String toString() {
 		StringJoiner join = new StringJoiner(", ");
-		for (int i = 0; i < this.size(); i++)
-			join.add(this.get(i).toString());
+		for (final D valeur : this)
+			join.add(String.valueOf(valeur));
 		return "Domaine{" + join.toString() + "}";
 	}
 }
@@ -0,0 +1,73 @@
+package McForgeMods.solveur;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * File FIFO des contraintes à réviser, identifiées par leur indice dans le solveur.
+ * <p>
+ * Une contrainte n'est présente qu'une seule fois dans la file: l'appartenance est testée en temps constant grâce à
+ * un ensemble de bits, ce qui évite de parcourir la file à chaque modification de domaine.
+ */
+class FileContraintes {
+	private final BitSet presentes = new BitSet();
+	private       int[]  file      = new int[16];
+	private       int    debut     = 0;
+	private       int    taille    = 0;
+	
+	public boolean isEmpty() {
+		return this.taille == 0;
+	}
+	
+	public boolean contains(final int contrainte) {
+		return this.presentes.get(contrainte);
+	}
+	
+	/**
+	 * Ajoute une contrainte en fin de file.
+	 *
+	 * @return {@code false} si la contrainte était déjà en attente.
+	 */
+	public boolean ajout(final int contrainte) {
+		if (this.presentes.get(contrainte)) return false;
+		if (this.taille == this.file.length) {
+			final int[] file = new int[this.taille * 2];
+			for (int i = 0; i < this.taille; i++)
+				file[i] = this.file[(this.debut + i) % this.file.length];
+			this.file = file;
+			this.debut = 0;
+		}
+		this.file[(this.debut + this.taille) % this.file.length] = contrainte;
+		this.taille++;
+		this.presentes.set(contrainte);
+		return true;
+	}
+	
+	/** Retire et renvoit la première contrainte de la file. */
+	public int retrait() {
+		final int contrainte = this.file[this.debut];
+		this.debut = (this.debut + 1) % this.file.length;
+		this.taille--;
+		this.presentes.clear(contrainte);
+		return contrainte;
+	}
+	
+	/** Ajoute en fin de file toutes les contraintes en attente dans une autre file. */
+	public void ajoutTout(final FileContraintes source) {
+		for (int i = 0; i < source.taille; i++)
+			this.ajout(source.file[(source.debut + i) % source.file.length]);
+	}
+	
+	public void clear() {
+		this.presentes.clear();
+		this.debut = this.taille = 0;
+	}
+	
+	@Override
+	public String toString() {
+		final int[] contenu = new int[this.taille];
+		for (int i = 0; i < this.taille; i++)
+			contenu[i] = this.file[(this.debut + i) % this.file.length];
+		return "FileContraintes" + Arrays.toString(contenu);
+	}
+}
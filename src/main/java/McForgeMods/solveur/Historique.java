@@ -0,0 +1,85 @@
+package McForgeMods.solveur;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Historique des modifications de domaines (<i>trail</i>).
+ * <p>
+ * Chaque décision du solveur ouvre un nouveau niveau. La première modification d'un domaine dans un niveau enregistre
+ * son état précédent, ainsi revenir à un niveau antérieur ne restaure que les domaines réellement modifiés depuis.
+ * L'état enregistré est le tableau de mots du domaine lui-même, le domaine poursuit sur une copie: le retour remet le
+ * tableau en place sans rejouer les suppressions. Les modifications faites au niveau 0 sont définitives.
+ * L'explication du domaine est sauvegardée avec lui.
+ */
+class Historique<D> {
+	private Domaine<D>[] domaines     = nouveauTableau(16);
+	private long[][]     mots         = new long[16][];
+	private int[]        tailles      = new int[16];
+	private int[]        niveaux      = new int[16];
+	private BitSet[]     explications = new BitSet[16];
+	private int          taille       = 0;
+	/** Taille de l'historique à l'ouverture de chaque niveau. */
+	private int[]        debuts       = new int[16];
+	private int          niveau       = 0;
+	
+	@SuppressWarnings("unchecked")
+	private static <D> Domaine<D>[] nouveauTableau(int taille) {
+		return (Domaine<D>[]) new Domaine<?>[taille];
+	}
+	
+	/** Niveau de décision actuel. */
+	public int niveau() {
+		return this.niveau;
+	}
+	
+	/**
+	 * Enregistre l'état du domaine s'il n'a pas encore été sauvegardé depuis l'ouverture du niveau actuel. Doit être
+	 * appelé avant toute modification du domaine.
+	 *
+	 * @param bits: mots actuels du domaine, conservés tels quels
+	 * @param taille: nombre de valeurs actives du domaine
+	 * @return {@code true} si les mots ont été conservés, le domaine ne doit alors plus les modifier.
+	 */
+	boolean sauvegarde(final Domaine<D> domaine, final long[] bits, final int taille) {
+		if (domaine.niveau >= this.niveau) return false;
+		if (this.taille == this.domaines.length) {
+			this.domaines = Arrays.copyOf(this.domaines, this.taille * 2);
+			this.mots = Arrays.copyOf(this.mots, this.taille * 2);
+			this.tailles = Arrays.copyOf(this.tailles, this.taille * 2);
+			this.niveaux = Arrays.copyOf(this.niveaux, this.taille * 2);
+			this.explications = Arrays.copyOf(this.explications, this.taille * 2);
+		}
+		this.domaines[this.taille] = domaine;
+		this.mots[this.taille] = bits;
+		this.tailles[this.taille] = taille;
+		this.niveaux[this.taille] = domaine.niveau;
+		this.explications[this.taille] = domaine.explication;
+		this.taille++;
+		domaine.niveau = this.niveau;
+		// l'explication sauvegardée ne doit plus être modifiée
+		domaine.explication = (BitSet) domaine.explication.clone();
+		return true;
+	}
+	
+	/** Ouvre un nouveau niveau de décision. */
+	public void nouveauNiveau() {
+		if (this.niveau == this.debuts.length) this.debuts = Arrays.copyOf(this.debuts, this.niveau * 2);
+		this.debuts[this.niveau++] = this.taille;
+	}
+	
+	/** Restaure tous les domaines dans l'état où ils étaient à l'ouverture du niveau {@code cible + 1}. */
+	public void retour(final int cible) {
+		while (this.niveau > cible) {
+			final int debut = this.debuts[--this.niveau];
+			while (this.taille > debut) {
+				this.taille--;
+				this.domaines[this.taille].restauration(this.mots[this.taille], this.tailles[this.taille],
+						this.niveaux[this.taille], this.explications[this.taille]);
+				this.domaines[this.taille] = null;
+				this.mots[this.taille] = null;
+				this.explications[this.taille] = null;
+			}
+		}
+	}
+}
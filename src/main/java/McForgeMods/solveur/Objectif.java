@@ -0,0 +1,165 @@
+package McForgeMods.solveur;
+
+import java.util.Arrays;
+
+/**
+ * Objectif à minimiser lors de la résolution (<i>branch and bound</i>).
+ * <p>
+ * Le coût d'une solution est la somme des coûts des valeurs choisies, chaque coût est un vecteur de critères comparés
+ * dans l'ordre lexicographique. Les coûts de toutes les valeurs sont calculés à l'enregistrement de la variable, le
+ * plus petit coût des valeurs actives est mis à jour à chaque modification de domaine: une suppression ne le change que
+ * si elle retire le rang qui l'atteint, une restauration ne peut que l'abaisser, seuls les rangs rétablis sont alors
+ * comparés. La somme de ces minimums est une borne inférieure du coût de toute solution accessible depuis l'état
+ * actuel: dès qu'elle atteint le coût de la meilleure solution connue, la branche est abandonnée.
+ *
+ * @param <K>: type des variables
+ * @param <D>: type des valeurs associées aux variables
+ */
+public abstract class Objectif<K, D> {
+	/** Nombre de critères, comparés dans l'ordre lexicographique. */
+	public final int criteres;
+	
+	private Solveur<K, D> solveur  = null;
+	/** Coûts des valeurs de chaque variable, rangés par rang puis par critère. */
+	private long[][]      couts    = new long[16][];
+	/** Plus petit coût de chaque critère parmi les valeurs actives de chaque variable. */
+	private long[][]      minimums = new long[16][];
+	/** Rang atteignant chaque minimum, {@code -1} si le domaine est vide. */
+	private int[][]       rangs    = new int[16][];
+	/** Somme des minimums. */
+	private long[]        borne;
+	/** Coût de la meilleure solution trouvée, {@code null} avant la première. */
+	private long[]        meilleur = null;
+	
+	protected Objectif(final int criteres) {
+		this.criteres = criteres;
+		this.borne = new long[criteres];
+	}
+	
+	/**
+	 * Coût d'une valeur, un élément par critère.
+	 *
+	 * @param rang position de la valeur dans l'ordre initial du domaine.
+	 */
+	protected abstract long[] cout(K id, D valeur, int rang);
+	
+	/** Nouvel objectif de même configuration, pour une copie du solveur. */
+	protected abstract Objectif<K, D> copie();
+	
+	/** Associe l'objectif au solveur et calcule les coûts de toutes ses variables. */
+	void initialisation(final Solveur<K, D> solveur) {
+		this.solveur = solveur;
+		Arrays.fill(this.borne, 0);
+		this.meilleur = null;
+		for (int v = 0; v < solveur.domaines.size(); v++)
+			this.ajoutVariable(v);
+	}
+	
+	void ajoutVariable(final int variable) {
+		if (variable >= this.couts.length) {
+			final int capacite = Math.max(variable + 1, this.couts.length * 2);
+			this.couts = Arrays.copyOf(this.couts, capacite);
+			this.minimums = Arrays.copyOf(this.minimums, capacite);
+			this.rangs = Arrays.copyOf(this.rangs, capacite);
+		}
+		final Domaine<D> domaine = this.solveur.domaines.get(variable);
+		final K id = this.solveur.cles.get(variable);
+		final long[] couts = new long[domaine.capacite() * this.criteres];
+		for (int rang = 0; rang < domaine.capacite(); rang++)
+			System.arraycopy(this.cout(id, domaine.valeurRang(rang), rang), 0, couts, rang * this.criteres,
+					this.criteres);
+		this.couts[variable] = couts;
+		this.minimums[variable] = new long[this.criteres];
+		this.rangs[variable] = new int[this.criteres];
+		Arrays.fill(this.rangs[variable], -1);
+		this.modification(variable);
+	}
+	
+	/** Des valeurs de la variable ont été désactivées: mise à jour de ses minimums et de la borne. */
+	void modification(final int variable) {
+		final Domaine<D> domaine = this.solveur.domaines.get(variable);
+		final long[] couts = this.couts[variable];
+		final long[] minimums = this.minimums[variable];
+		final int[] rangs = this.rangs[variable];
+		for (int c = 0; c < this.criteres; c++) {
+			if (rangs[c] >= 0 && domaine.actif(rangs[c])) continue;
+			long minimum = 0;
+			int rang = -1;
+			for (int r = domaine.suivant(0, domaine.capacite()); r >= 0; r = domaine.suivant(r + 1, domaine.capacite()))
+				if (rang < 0 || couts[r * this.criteres + c] < minimum) {
+					minimum = couts[r * this.criteres + c];
+					rang = r;
+				}
+			this.borne[c] += minimum - minimums[c];
+			minimums[c] = minimum;
+			rangs[c] = rang;
+		}
+	}
+	
+	/**
+	 * Le domaine de la variable a été restauré: seuls les rangs rétablis peuvent abaisser ses minimums.
+	 *
+	 * @param avant mots du domaine avant la restauration.
+	 */
+	void restauration(final int variable, final long[] avant) {
+		final Domaine<D> domaine = this.solveur.domaines.get(variable);
+		final long[] couts = this.couts[variable];
+		final long[] minimums = this.minimums[variable];
+		final int[] rangs = this.rangs[variable];
+		for (int mot = 0; mot < avant.length; mot++) {
+			for (long retablis = domaine.mot(mot) & ~avant[mot]; retablis != 0; retablis &= retablis - 1) {
+				final int r = (mot << 6) + Long.numberOfTrailingZeros(retablis);
+				for (int c = 0; c < this.criteres; c++) {
+					final long cout = couts[r * this.criteres + c];
+					if (rangs[c] < 0 || cout < minimums[c]) {
+						this.borne[c] += cout - minimums[c];
+						minimums[c] = cout;
+						rangs[c] = r;
+					}
+				}
+			}
+		}
+	}
+	
+	/** Oublie la meilleure solution avant une nouvelle recherche. */
+	void nouvelleRecherche() {
+		this.meilleur = null;
+	}
+	
+	/** @return {@code true} si l'état actuel peut encore améliorer la meilleure solution. */
+	boolean prometteur() {
+		return this.meilleur == null || comparaison(this.borne, this.meilleur) < 0;
+	}
+	
+	/** Toutes les variables sont fixées: la borne est le coût exact de la solution actuelle. */
+	void enregistrement() {
+		this.meilleur = this.borne.clone();
+	}
+	
+	/** Rang de la valeur active de plus petit coût, à égalité la première dans l'ordre initial. */
+	int preferee(final int variable) {
+		final Domaine<D> domaine = this.solveur.domaines.get(variable);
+		final long[] couts = this.couts[variable];
+		final int capacite = domaine.capacite();
+		int meilleure = domaine.suivant(0, capacite);
+		for (int r = domaine.suivant(meilleure + 1, capacite); r >= 0; r = domaine.suivant(r + 1, capacite)) {
+			final int a = r * this.criteres, b = meilleure * this.criteres;
+			int c = 0;
+			while (c < this.criteres && couts[a + c] == couts[b + c]) c++;
+			if (c < this.criteres && couts[a + c] < couts[b + c]) meilleure = r;
+		}
+		return meilleure;
+	}
+	
+	/** Coût de la meilleure solution trouvée par la dernière résolution, {@code null} si aucune. */
+	public long[] valeur() {
+		return this.meilleur == null ? null : this.meilleur.clone();
+	}
+	
+	/** Comparaison lexicographique de deux coûts. */
+	public static int comparaison(final long[] a, final long[] b) {
+		for (int c = 0; c < a.length; c++)
+			if (a[c] != b[c]) return Long.compare(a[c], b[c]);
+		return 0;
+	}
+}
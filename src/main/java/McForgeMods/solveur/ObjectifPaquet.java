@@ -0,0 +1,52 @@
+package McForgeMods.solveur;
+
+import McForgeMods.Version;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Objectif d'une installation de mods, trois critères par ordre d'importance:
+ * <ol>
+ *     <li>nombre de mods verrouillés dont la version change,</li>
+ *     <li>nombre de mods installés, mis à jour ou supprimés,</li>
+ *     <li>retard des versions choisies sur la version la plus récente du dépôt.</li>
+ * </ol>
+ * Les domaines du {@link SolveurPaquet} contiennent {@code null} puis les versions de la plus récente à la plus
+ * ancienne: le retard d'une version est son rang moins un. Minecraft et forge sont imposés et ne comptent pas.
+ */
+public class ObjectifPaquet extends Objectif<String, Version> {
+	private final Map<String, Version> installes;
+	private final Set<String>          verrous;
+	
+	/**
+	 * @param installes version actuellement installée de chaque mod.
+	 * @param verrous   mods dont la version ne doit pas changer.
+	 */
+	public ObjectifPaquet(final Map<String, Version> installes, final Set<String> verrous) {
+		super(3);
+		this.installes = installes;
+		this.verrous = verrous;
+	}
+	
+	@Override
+	protected long[] cout(final String modid, final Version version, final int rang) {
+		if (modid.equals("minecraft") || modid.equals("forge")) return new long[3];
+		final boolean change = this.installes.containsKey(modid) ? !Objects.equals(version, this.installes.get(modid))
+				: version != null;
+		return new long[]{this.verrous.contains(modid) && change ? 1 : 0, change ? 1 : 0,
+				version == null ? 0 : rang - 1};
+	}
+	
+	@Override
+	protected ObjectifPaquet copie() {
+		return new ObjectifPaquet(this.installes, this.verrous);
+	}
+	
+	/** Description lisible d'une valeur de l'objectif. */
+	public static String description(final long[] valeur) {
+		return String.format("%d verrou(s) modifié(s), %d changement(s), retard de version %d", valeur[0], valeur[1],
+				valeur[2]);
+	}
+}
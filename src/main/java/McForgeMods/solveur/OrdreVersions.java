@@ -0,0 +1,53 @@
+package McForgeMods.solveur;
+
+import McForgeMods.Version;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Ordre d'essai des versions d'un mod, par critères activables dans l'ordre d'importance:
+ * <ol>
+ *     <li>{@link Critere#installee}: la version actuellement installée,</li>
+ *     <li>le mod non installé, comme dans l'ordre initial du {@link SolveurPaquet},</li>
+ *     <li>{@link Critere#cache}: les versions dont l'archive est déjà téléchargée,</li>
+ *     <li>{@link Critere#stable}: les versions publiées avant les pré-versions ({@link Version#release}).</li>
+ * </ol>
+ * À égalité, la version la plus récente est essayée en premier.
+ */
+public class OrdreVersions implements OrdreValeurs<String, Version> {
+	private final Map<String, Version>         installes;
+	private final BiPredicate<String, Version> cache;
+	private final Set<Critere>                 criteres;
+	
+	/**
+	 * @param installes version actuellement installée de chaque mod.
+	 * @param cache     indique si l'archive d'une version est déjà téléchargée.
+	 * @param criteres  critères actifs, les autres sont ignorés.
+	 */
+	public OrdreVersions(final Map<String, Version> installes, final BiPredicate<String, Version> cache,
+			final Collection<Critere> criteres) {
+		this.installes = installes;
+		this.cache = cache;
+		this.criteres = criteres.isEmpty() ? EnumSet.noneOf(Critere.class) : EnumSet.copyOf(criteres);
+	}
+	
+	@Override
+	public long[] priorite(final String modid, final Version version, final int rang) {
+		final long[] priorite = new long[4];
+		if (this.criteres.contains(Critere.installee) && this.installes.containsKey(modid))
+			priorite[0] = Objects.equals(version, this.installes.get(modid)) ? 0 : 1;
+		if (version == null) return priorite;
+		priorite[1] = 1;
+		if (this.criteres.contains(Critere.cache) && !this.cache.test(modid, version)) priorite[2] = 1;
+		if (this.criteres.contains(Critere.stable) && version.release != null) priorite[3] = 1;
+		return priorite;
+	}
+	
+	/** Critères disponibles, par exemple pour le choix en ligne de commande. */
+	public enum Critere {
+		installee,
+		cache,
+		stable
+	}
+}
@@ -0,0 +1,120 @@
+package McForgeMods.solveur;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Portefeuille de recherches concurrentes.
+ * <p>
+ * Chaque {@link Configuration} résout sa propre copie du solveur dans un fil séparé. La durée d'une recherche dépend
+ * énormément de l'ordre des choix: la première qui conclut, par une solution ou par une preuve d'insatisfiabilité,
+ * l'emporte. Les autres sont annulées par un indicateur partagé qu'elles consultent à chaque étape.
+ */
+public final class Portfolio {
+	private Portfolio() {
+	}
+	
+	/** Réglages d'une recherche du portefeuille. */
+	public static class Configuration {
+		public final SelecteurVariable.Heuristique heuristique;
+		/** Graine des choix aléatoires, {@code 0} pour une recherche déterministe. */
+		public final long                          graine;
+		/** Probabilité de choisir une valeur au hasard. */
+		public final double                        probabiliteHasard;
+		/** Nombre d'échecs avant le premier redémarrage, 0 sans redémarrage. */
+		public final int                           uniteRedemarrage;
+		
+		public Configuration(SelecteurVariable.Heuristique heuristique, long graine, double probabiliteHasard,
+				int uniteRedemarrage) {
+			this.heuristique = heuristique;
+			this.graine = graine;
+			this.probabiliteHasard = probabiliteHasard;
+			this.uniteRedemarrage = uniteRedemarrage;
+		}
+		
+		void application(final Solveur<?, ?> solveur) {
+			final SelecteurVariable selecteur = this.heuristique.creation();
+			solveur.selecteur(selecteur);
+			if (this.graine != 0) {
+				selecteur.melange(new Random(this.graine));
+				solveur.hasard(new Random(this.graine), this.probabiliteHasard);
+			}
+			solveur.uniteRedemarrage = this.uniteRedemarrage;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("Configuration{%s, graine=%d, hasard=%s, redemarrage=%d}", heuristique, graine,
+					probabiliteHasard, uniteRedemarrage);
+		}
+	}
+	
+	/**
+	 * Configurations variées: chaque heuristique déterministe d'abord, puis des variantes avec départage aléatoire,
+	 * valeurs parfois tirées au hasard et redémarrages.
+	 */
+	public static List<Configuration> configurations(final int nombre) {
+		final SelecteurVariable.Heuristique[] heuristiques = {SelecteurVariable.Heuristique.domwdeg,
+				SelecteurVariable.Heuristique.mrv, SelecteurVariable.Heuristique.domdeg,
+				SelecteurVariable.Heuristique.premier};
+		final List<Configuration> configurations = new ArrayList<>();
+		for (int i = 0; i < nombre; i++) {
+			if (i < heuristiques.length) configurations.add(new Configuration(heuristiques[i], 0, 0, 0));
+			else configurations.add(new Configuration(heuristiques[i % 2], i, 0.1, 100));
+		}
+		return configurations;
+	}
+	
+	/** Recherche d'une copie du solveur. */
+	static class Course<K, D> implements Callable<Course<K, D>> {
+		final Solveur<K, D> solveur;
+		final Configuration configuration;
+		boolean             resultat = false;
+		
+		Course(Solveur<K, D> solveur, Configuration configuration) {
+			this.solveur = solveur;
+			this.configuration = configuration;
+		}
+		
+		@Override
+		public Course<K, D> call() {
+			this.resultat = this.solveur.resolution();
+			// une recherche à court de budget conclut comme les autres
+			if (this.solveur.interrompue() && !this.solveur.budgetEpuise()) throw new CancellationException();
+			return this;
+		}
+	}
+	
+	/**
+	 * Lance une recherche par configuration, chacune sur une copie du modèle.
+	 *
+	 * @return la première recherche terminée.
+	 */
+	static <K, D> Course<K, D> course(final Solveur<K, D> modele, final List<Configuration> configurations) {
+		final AtomicBoolean annulation = new AtomicBoolean(false);
+		final List<Course<K, D>> courses = new ArrayList<>();
+		for (final Configuration configuration : configurations) {
+			final Solveur<K, D> copie = modele.copie();
+			configuration.application(copie);
+			copie.annulation(annulation);
+			courses.add(new Course<>(copie, configuration));
+		}
+		
+		final ExecutorService executeur = Executors
+				.newFixedThreadPool(Math.min(courses.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			return executeur.invokeAny(courses);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			annulation.set(true);
+			executeur.shutdownNow();
+		}
+	}
+}
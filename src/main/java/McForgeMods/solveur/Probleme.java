@@ -0,0 +1,129 @@
+package McForgeMods.solveur;
+
+import McForgeMods.PaquetMinecraft;
+import McForgeMods.Version;
+import McForgeMods.depot.Depot;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Problème de dépendances autonome, capturé depuis un {@link SolveurPaquet} pour être rejoué sans dépôt local ni
+ * installation, par exemple pour comparer des configurations de résolution.
+ * <p>
+ * Le problème contient les mods déclarés hors du dépôt avec leurs versions, les mods chargés dans l'ordre, les
+ * paquets de toutes les versions chargées et les versions encore possibles des mods restreints. Les dépendances et les
+ * conflits sont ceux des paquets: charger les mods dans le même ordre reconstruit les mêmes domaines et les mêmes
+ * contraintes. Les restrictions incluent les réductions déjà propagées, qui ne changent pas les solutions.
+ * <p>
+ * Le fichier est un JSON:
+ * <pre>
+ * {
+ *     "minecraft": "1.12.2",
+ *     "declarations": [{"modid": "forge", "versions": ["14.23.5.2854"]}],
+ *     "chargements": ["jei"],
+ *     "paquets": [{"name": "jei", "version": "4.16.0", ...}],
+ *     "demandes": [{"modid": "jei", "versions": ["4.16.0"]}]
+ * }
+ * </pre>
+ * Les déclarations et les demandes sont des tableaux dans l'ordre d'enregistrement, et non des objets dont les clés ne
+ * sont pas ordonnées: rejouer le problème enregistre les variables et les restrictions dans le même ordre, la
+ * résolution est identique. La version {@code null} d'un mod non installé est écrite {@code null}.
+ */
+public class Probleme {
+	public final Version                    minecraft;
+	/** Mods déclarés hors du dépôt, comme forge, avec leurs versions possibles, dans l'ordre de déclaration. */
+	public final Map<String, List<Version>> declarations = new LinkedHashMap<>();
+	/** Mods chargés avec leurs dépendances, dans l'ordre de chargement. */
+	public final List<String>               chargements  = new ArrayList<>();
+	/** Dépôt réduit aux versions chargées. */
+	public final Depot                      depot        = new Depot();
+	/** Versions encore possibles des mods restreints, dans l'ordre des variables. */
+	public final Map<String, Set<Version>>  demandes     = new LinkedHashMap<>();
+	
+	public Probleme(final Version minecraft) {
+		this.minecraft = minecraft;
+	}
+	
+	/**
+	 * Crée un résolveur du problème prêt à résoudre, les mods chargés et les demandes posées.
+	 *
+	 * @see Resolveur.Moteur#creation
+	 */
+	public Resolveur resolveur(final Resolveur.Moteur moteur, final SelecteurVariable.Heuristique heuristique) {
+		final Resolveur resolveur = moteur.creation(this.depot, this.minecraft, heuristique);
+		this.declarations.forEach(resolveur::ajoutVariable);
+		this.chargements.forEach(resolveur::initialisationMod);
+		this.demandes.forEach((modid, versions) -> resolveur.restriction(modid, versions::contains));
+		return resolveur;
+	}
+	
+	public void ecriture(final OutputStream output) throws IOException {
+		final JSONObject json = new JSONObject();
+		json.put("minecraft", this.minecraft.toString());
+		json.put("declarations", entrees(this.declarations));
+		json.put("chargements", new JSONArray(this.chargements));
+		final JSONArray paquets = new JSONArray();
+		for (final String modid : this.depot.getModids())
+			for (final PaquetMinecraft paquet : this.depot.getModVersions(modid)) {
+				final JSONObject data = new JSONObject();
+				paquet.ecriturePaquet(data);
+				paquets.put(data);
+			}
+		json.put("paquets", paquets);
+		json.put("demandes", entrees(this.demandes));
+		
+		try (OutputStreamWriter writer = new OutputStreamWriter(new BufferedOutputStream(output))) {
+			json.write(writer, 4, 0);
+		}
+	}
+	
+	/** Un objet {@code {"modid", "versions"}} par mod, dans l'ordre de la table. */
+	private static JSONArray entrees(final Map<String, ? extends Collection<Version>> table) {
+		final JSONArray json = new JSONArray();
+		table.forEach((modid, versions) -> json.put(new JSONObject().put("modid", modid).put("versions",
+				versions(versions))));
+		return json;
+	}
+	
+	private static JSONArray versions(final Collection<Version> versions) {
+		final JSONArray json = new JSONArray();
+		for (final Version version : versions)
+			json.put(version == null ? JSONObject.NULL : version.toString());
+		return json;
+	}
+	
+	public static Probleme lecture(final InputStream input) throws JSONException {
+		final JSONObject json = new JSONObject(new JSONTokener(new BufferedInputStream(input)));
+		final Probleme probleme = new Probleme(Version.read(json.getString("minecraft")));
+		final JSONArray declarations = json.getJSONArray("declarations");
+		for (int i = 0; i < declarations.length(); i++) {
+			final JSONObject declaration = declarations.getJSONObject(i);
+			probleme.declarations.put(declaration.getString("modid"), versions(declaration.getJSONArray("versions")));
+		}
+		final JSONArray chargements = json.getJSONArray("chargements");
+		for (int i = 0; i < chargements.length(); i++)
+			probleme.chargements.add(chargements.getString(i));
+		final JSONArray paquets = json.getJSONArray("paquets");
+		for (int i = 0; i < paquets.length(); i++)
+			probleme.depot.ajoutModVersion(PaquetMinecraft.lecturePaquet(paquets.getJSONObject(i)));
+		final JSONArray demandes = json.getJSONArray("demandes");
+		for (int i = 0; i < demandes.length(); i++) {
+			final JSONObject demande = demandes.getJSONObject(i);
+			probleme.demandes.put(demande.getString("modid"),
+					new LinkedHashSet<>(versions(demande.getJSONArray("versions"))));
+		}
+		return probleme;
+	}
+	
+	private static List<Version> versions(final JSONArray json) {
+		final List<Version> versions = new ArrayList<>();
+		for (int i = 0; i < json.length(); i++)
+			versions.add(json.isNull(i) ? null : Version.read(json.getString(i)));
+		return versions;
+	}
+}
@@ -0,0 +1,70 @@
+package McForgeMods.solveur;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Découpage de l'arbre de recherche entre les fils d'un {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * Tant que la profondeur n'est pas atteinte, la tâche choisit une variable et crée une sous-tâche par valeur de son
+ * domaine, chacune sur sa propre copie du solveur. Les sous-tâches inoccupées sont volées par les fils libres. Au-delà,
+ * le sous-arbre est exploré par {@link Solveur#resolution()}.
+ * <p>
+ * Sans objectif, la première solution trouvée annule toutes les autres tâches. Avec un {@link Objectif}, chaque
+ * sous-arbre est optimisé séparément et la meilleure solution est retenue.
+ */
+@SuppressWarnings("serial")
+class RechercheParallele<K, D> extends RecursiveTask<Solveur<K, D>> {
+	private final Solveur<K, D> solveur;
+	private final int           profondeur;
+	private final AtomicBoolean annulation;
+	/** Une recherche a épuisé son budget. */
+	private final AtomicBoolean epuise;
+	
+	RechercheParallele(Solveur<K, D> solveur, int profondeur, AtomicBoolean annulation, AtomicBoolean epuise) {
+		this.solveur = solveur;
+		this.profondeur = profondeur;
+		this.annulation = annulation;
+		this.epuise = epuise;
+	}
+	
+	/** @return le solveur de la meilleure solution du sous-arbre, {@code null} si aucune. */
+	@Override
+	protected Solveur<K, D> compute() {
+		if (this.annulation.get() || !this.solveur.coherence()) return null;
+		final int variable = this.profondeur > 0 ? this.solveur.selecteur().selection() : -1;
+		if (variable < 0) {
+			this.solveur.annulation(this.annulation);
+			if (!this.solveur.resolution()) {
+				if (this.solveur.budgetEpuise()) this.epuise.set(true);
+				return null;
+			}
+			if (this.solveur.valeurObjectif() == null) this.annulation.set(true);
+			return this.solveur;
+		}
+		
+		final Domaine<D> domaine = this.solveur.domaines.get(variable);
+		final List<D> valeurs = new ArrayList<>(domaine.size());
+		for (final D valeur : domaine)
+			valeurs.add(valeur);
+		final List<RechercheParallele<K, D>> branches = new ArrayList<>(valeurs.size());
+		for (int i = 0; i < valeurs.size(); i++) {
+			// la dernière branche réutilise le solveur de la tâche
+			final Solveur<K, D> copie = i + 1 < valeurs.size() ? this.solveur.copie() : this.solveur;
+			copie.domaines.get(variable).reduction(valeurs.get(i));
+			branches.add(new RechercheParallele<>(copie, this.profondeur - 1, this.annulation, this.epuise));
+		}
+		invokeAll(branches);
+		
+		Solveur<K, D> meilleur = null;
+		for (final RechercheParallele<K, D> branche : branches) {
+			final Solveur<K, D> resultat = branche.join();
+			if (resultat != null && (meilleur == null || (meilleur.valeurObjectif() != null
+					&& Objectif.comparaison(resultat.valeurObjectif(), meilleur.valeurObjectif()) < 0)))
+				meilleur = resultat;
+		}
+		return meilleur;
+	}
+}
@@ -0,0 +1,143 @@
+package McForgeMods.solveur;
+
+import McForgeMods.Version;
+import McForgeMods.depot.Depot;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Résolution des dépendances entre les mods d'un dépôt.
+ * <p>
+ * Chaque mod reçoit au plus une version, la version {@code null} correspond à un mod non installé. Les mods sont
+ * chargés avec toutes leurs dépendances par {@link #initialisationMod(String)}, les demandes de l'utilisateur
+ * restreignent ensuite les versions acceptables avant la {@link #resolution()}.
+ */
+public interface Resolveur {
+	/** Déclare un mod absent du dépôt avec ses versions possibles, par exemple forge. */
+	void ajoutVariable(String modid, Collection<Version> versions);
+	
+	/** Charge un mod et toutes les dépendances de ses versions. */
+	void initialisationMod(String modid);
+	
+	/**
+	 * Ne conserve que les versions acceptables d'un mod, chargé si besoin. La version {@code null} indique que le mod
+	 * peut ne pas être installé.
+	 */
+	void restriction(String modid, Predicate<Version> acceptable);
+	
+	/** @return {@code true} si une version a pu être choisie pour chaque mod. */
+	boolean resolution();
+	
+	/**
+	 * Résolution par plusieurs recherches concurrentes, la première terminée l'emporte. Par défaut, une seule
+	 * recherche.
+	 */
+	default boolean resolutionPortfolio(int recherches) {
+		return this.resolution();
+	}
+	
+	/**
+	 * Résolution découpée entre plusieurs fils sur les {@code profondeur} premiers niveaux de décision. Par défaut,
+	 * une seule recherche.
+	 */
+	default boolean resolutionParallele(int profondeur) {
+		return this.resolution();
+	}
+	
+	/**
+	 * Résolution séparée de chaque groupe de mods indépendants, en parallèle si demandé. Par défaut, une seule
+	 * recherche.
+	 */
+	default boolean resolutionComposantes(boolean parallele) {
+		return this.resolution();
+	}
+	
+	/** Limite chaque résolution en durée, en décisions et en retours en arrière. */
+	void budget(Budget budget);
+	
+	/** @return {@code true} si la dernière résolution s'est arrêtée avant de conclure, par exemple faute de budget. */
+	boolean interrompue();
+	
+	/**
+	 * Versions déjà choisies quand la dernière résolution a épuisé son budget sans solution, {@code null} pour un mod
+	 * non installé. Les autres mods n'ont pas encore de version.
+	 */
+	Map<String, Version> solutionPartielle();
+	
+	/** Compteurs d'activité du résolveur, cumulés depuis sa création. */
+	Statistiques statistiques();
+	
+	/** Mods chargés dans le résolveur. */
+	Set<String> variables();
+	
+	/** Version choisie par la dernière résolution réussie, {@code null} si le mod n'est pas installé. */
+	Version solution(String modid);
+	
+	/**
+	 * Cherche la solution de plus petit coût au lieu de la première trouvée.
+	 *
+	 * @throws UnsupportedOperationException si le résolveur ne sait pas optimiser.
+	 */
+	default void optimisation(Objectif<String, Version> objectif) {
+		throw new UnsupportedOperationException("Optimisation non disponible pour " + this.getClass().getSimpleName());
+	}
+	
+	/**
+	 * Choisit l'ordre d'essai des versions, sans changer l'ensemble des solutions. Par défaut, l'ordre est ignoré.
+	 */
+	default void ordreValeurs(OrdreValeurs<String, Version> ordre) {
+	}
+	
+	/**
+	 * Capture le problème actuel pour le rejouer sans dépôt local ni installation.
+	 *
+	 * @throws UnsupportedOperationException si le résolveur ne sait pas capturer son problème.
+	 */
+	default Probleme probleme() {
+		throw new UnsupportedOperationException("Capture non disponible pour " + this.getClass().getSimpleName());
+	}
+	
+	/**
+	 * Après un échec, cherche un ensemble minimal de restrictions incompatibles: retirer n'importe laquelle d'entre
+	 * elles rend le problème résoluble.
+	 *
+	 * @return les restrictions en cause, vide si le problème est insoluble sans restriction, {@code null} si les
+	 * restrictions sont compatibles.
+	 * @throws UnsupportedOperationException si le résolveur ne sait pas isoler les restrictions.
+	 * @throws Diagnostic.Interruption si une résolution intermédiaire a épuisé le budget sans conclure.
+	 */
+	default List<Map.Entry<String, Predicate<Version>>> conflitMinimal() {
+		throw new UnsupportedOperationException("Diagnostic non disponible pour " + this.getClass().getSimpleName());
+	}
+	
+	/** Coût de la solution retenue par la dernière optimisation, {@code null} sans objectif ou sans solution. */
+	default long[] valeurObjectif() {
+		return null;
+	}
+	
+	/** Mods dont aucune version n'est possible après un échec, si le résolveur sait les identifier. */
+	default Set<String> echecs() {
+		return Collections.emptySet();
+	}
+	
+	/** Résolveurs disponibles, par exemple pour le choix en ligne de commande. */
+	enum Moteur {
+		/** Recherche par contraintes: {@link SolveurPaquet}, dans une {@link SessionSolveur}. */
+		csp,
+		/** Encodage en clauses: {@link SolveurPaquetSAT}. */
+		sat;
+		
+		public Resolveur creation(final Depot depot, final Version minecraft,
+				final SelecteurVariable.Heuristique heuristique) {
+			if (this == sat) return new SolveurPaquetSAT(depot, minecraft);
+			final SolveurPaquet solveur = new SolveurPaquet(depot, minecraft);
+			solveur.selecteur(heuristique.creation());
+			return new SessionSolveur(solveur);
+		}
+	}
+}
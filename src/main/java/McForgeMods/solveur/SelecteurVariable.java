@@ -0,0 +1,254 @@
+package McForgeMods.solveur;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Stratégie de choix de la prochaine variable à fixer.
+ * <p>
+ * Les variables sont rangées dans un tas indexé selon leur {@link #score(int)}: la variable de plus petit score est
+ * choisie, à égalité celle enregistrée en premier ou un ordre aléatoire après {@link #melange(Random)}. Le solveur
+ * prévient le sélecteur à chaque changement de taille d'un domaine, le tas est alors mis à jour en temps logarithmique
+ * au lieu de parcourir toutes les variables à chaque décision. Les variables déjà fixées reçoivent un score infini.
+ */
+public abstract class SelecteurVariable {
+	protected Solveur<?, ?> solveur          = null;
+	/** Nombre de contraintes portant sur chaque variable. */
+	protected int[]         degres           = new int[16];
+	/** Somme des poids des contraintes portant sur chaque variable. */
+	protected double[]      poids            = new double[16];
+	/** Poids de chaque contrainte: 1 plus le nombre d'échecs qu'elle a provoqués. */
+	protected double[]      poidsContraintes = new double[16];
+	
+	private int[]    tas        = new int[16];
+	private int[]    positions  = new int[16];
+	private double[] scores     = new double[16];
+	private int      taille     = 0;
+	/** Rang de chaque variable pour départager les égalités, l'ordre d'enregistrement par défaut. */
+	private int[]    ordre      = new int[16];
+	private Random   hasard     = null;
+	/** Seules ces variables peuvent être choisies, toutes si {@code null}. */
+	private BitSet   candidates = null;
+	
+	/**
+	 * Évalue une variable libre. Plus le score est petit, plus la variable est prioritaire.
+	 *
+	 * @param variable indice d'une variable dont le domaine contient au moins deux valeurs.
+	 */
+	protected abstract double score(int variable);
+	
+	/** Nouveau sélecteur de même stratégie, sans état. */
+	protected abstract SelecteurVariable nouveau();
+	
+	/** Sélecteur de même stratégie pour une copie du solveur: les poids des contraintes sont conservés. */
+	SelecteurVariable copie() {
+		final SelecteurVariable copie = this.nouveau();
+		copie.poidsContraintes = this.poidsContraintes.clone();
+		return copie;
+	}
+	
+	/** Associe le sélecteur au solveur et enregistre toutes ses variables et contraintes. */
+	void initialisation(final Solveur<?, ?> solveur) {
+		this.solveur = solveur;
+		this.taille = 0;
+		Arrays.fill(this.degres, 0);
+		Arrays.fill(this.poids, 0);
+		for (int v = 0; v < solveur.domaines.size(); v++)
+			this.ajoutVariable(v);
+		for (final Contrainte<?, ?> contrainte : solveur.contraintes)
+			this.ajoutContrainte(contrainte);
+	}
+	
+	void ajoutVariable(final int variable) {
+		if (variable >= this.positions.length) {
+			final int capacite = Math.max(variable + 1, this.positions.length * 2);
+			this.tas = Arrays.copyOf(this.tas, capacite);
+			this.positions = Arrays.copyOf(this.positions, capacite);
+			this.scores = Arrays.copyOf(this.scores, capacite);
+			this.degres = Arrays.copyOf(this.degres, capacite);
+			this.poids = Arrays.copyOf(this.poids, capacite);
+			this.ordre = Arrays.copyOf(this.ordre, capacite);
+		}
+		this.ordre[variable] = this.hasard == null ? variable : this.hasard.nextInt();
+		this.tas[this.taille] = variable;
+		this.positions[variable] = this.taille;
+		this.scores[variable] = this.evaluation(variable);
+		this.monter(this.taille++);
+	}
+	
+	void ajoutContrainte(final Contrainte<?, ?> contrainte) {
+		if (contrainte.indice >= this.poidsContraintes.length)
+			this.poidsContraintes = Arrays.copyOf(this.poidsContraintes,
+					Math.max(contrainte.indice + 1, this.poidsContraintes.length * 2));
+		if (this.poidsContraintes[contrainte.indice] == 0) this.poidsContraintes[contrainte.indice] = 1;
+		for (final int variable : contrainte.indicesPortee) {
+			this.degres[variable]++;
+			this.poids[variable] += this.poidsContraintes[contrainte.indice];
+			this.modification(variable);
+		}
+	}
+	
+	/** Le domaine de la variable a changé de taille. */
+	void modification(final int variable) {
+		final double score = this.evaluation(variable);
+		if (score == this.scores[variable]) return;
+		final double ancien = this.scores[variable];
+		this.scores[variable] = score;
+		if (score < ancien) this.monter(this.positions[variable]);
+		else this.descendre(this.positions[variable]);
+	}
+	
+	/** Départage désormais les égalités de score au hasard. */
+	public void melange(final Random hasard) {
+		this.hasard = hasard;
+		for (int position = 0; position < this.taille; position++)
+			this.ordre[this.tas[position]] = hasard.nextInt();
+		for (int position = this.taille / 2 - 1; position >= 0; position--)
+			this.descendre(position);
+	}
+	
+	/**
+	 * Limite les prochaines sélections à un ensemble de variables, les autres reçoivent un score infini comme les
+	 * variables fixées. {@code null} lève la restriction.
+	 */
+	void restriction(final BitSet candidates) {
+		this.candidates = candidates;
+		for (int position = 0; position < this.taille; position++)
+			this.scores[this.tas[position]] = this.evaluation(this.tas[position]);
+		for (int position = this.taille / 2 - 1; position >= 0; position--)
+			this.descendre(position);
+	}
+	
+	/** Une contrainte vient de vider un domaine: son poids augmente. */
+	void echec(final Contrainte<?, ?> contrainte) {
+		this.poidsContraintes[contrainte.indice]++;
+		for (final int variable : contrainte.indicesPortee) {
+			this.poids[variable]++;
+			this.modification(variable);
+		}
+	}
+	
+	/**
+	 * Sélectionne une variable qui possède encore des libertés.
+	 *
+	 * @return l'indice de la variable ou {@code -1} si toutes les variables sont fixées.
+	 */
+	public int selection() {
+		return this.taille > 0 && this.scores[this.tas[0]] != Double.POSITIVE_INFINITY ? this.tas[0] : -1;
+	}
+	
+	private double evaluation(final int variable) {
+		if (this.candidates != null && !this.candidates.get(variable)) return Double.POSITIVE_INFINITY;
+		return this.solveur.domaines.get(variable).size() > 1 ? this.score(variable) : Double.POSITIVE_INFINITY;
+	}
+	
+	private boolean avant(final int a, final int b) {
+		if (this.scores[a] != this.scores[b]) return this.scores[a] < this.scores[b];
+		return this.ordre[a] < this.ordre[b] || (this.ordre[a] == this.ordre[b] && a < b);
+	}
+	
+	private void placer(final int position, final int variable) {
+		this.tas[position] = variable;
+		this.positions[variable] = position;
+	}
+	
+	private void monter(int position) {
+		final int variable = this.tas[position];
+		while (position > 0) {
+			final int parent = (position - 1) / 2;
+			if (!this.avant(variable, this.tas[parent])) break;
+			this.placer(position, this.tas[parent]);
+			position = parent;
+		}
+		this.placer(position, variable);
+	}
+	
+	private void descendre(int position) {
+		final int variable = this.tas[position];
+		while (2 * position + 1 < this.taille) {
+			int enfant = 2 * position + 1;
+			if (enfant + 1 < this.taille && this.avant(this.tas[enfant + 1], this.tas[enfant])) enfant++;
+			if (!this.avant(this.tas[enfant], variable)) break;
+			this.placer(position, this.tas[enfant]);
+			position = enfant;
+		}
+		this.placer(position, variable);
+	}
+	
+	/** Première variable libre dans l'ordre d'enregistrement. */
+	public static class Premier extends SelecteurVariable {
+		@Override
+		protected double score(int variable) {
+			return 0;
+		}
+		
+		@Override
+		protected SelecteurVariable nouveau() {
+			return new Premier();
+		}
+	}
+	
+	/** Plus petit domaine d'abord (<i>MRV</i>). */
+	public static class PlusPetitDomaine extends SelecteurVariable {
+		@Override
+		protected double score(int variable) {
+			return this.solveur.domaines.get(variable).size();
+		}
+		
+		@Override
+		protected SelecteurVariable nouveau() {
+			return new PlusPetitDomaine();
+		}
+	}
+	
+	/** Taille du domaine divisée par le nombre de contraintes de la variable (<i>dom/deg</i>). */
+	public static class DomaineDegre extends SelecteurVariable {
+		@Override
+		protected double score(int variable) {
+			return this.solveur.domaines.get(variable).size() / (double) Math.max(1, this.degres[variable]);
+		}
+		
+		@Override
+		protected SelecteurVariable nouveau() {
+			return new DomaineDegre();
+		}
+	}
+	
+	/**
+	 * Taille du domaine divisée par le degré pondéré (<i>dom/wdeg</i>): les contraintes qui échouent souvent rendent
+	 * leurs variables prioritaires.
+	 */
+	public static class DomainePoids extends SelecteurVariable {
+		@Override
+		protected double score(int variable) {
+			return this.solveur.domaines.get(variable).size() / Math.max(1, this.poids[variable]);
+		}
+		
+		@Override
+		protected SelecteurVariable nouveau() {
+			return new DomainePoids();
+		}
+	}
+	
+	/** Heuristiques disponibles, par exemple pour le choix en ligne de commande. */
+	public enum Heuristique {
+		premier,
+		mrv,
+		domdeg,
+		domwdeg;
+		
+		public SelecteurVariable creation() {
+			switch (this) {
+				case premier:
+					return new Premier();
+				case mrv:
+					return new PlusPetitDomaine();
+				case domdeg:
+					return new DomaineDegre();
+				default:
+					return new DomainePoids();
+			}
+		}
+	}
+}
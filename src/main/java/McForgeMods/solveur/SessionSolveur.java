@@ -0,0 +1,262 @@
+package McForgeMods.solveur;
+
+import McForgeMods.Version;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Session de résolution réutilisée entre plusieurs demandes.
+ * <p>
+ * Les variables, les contraintes et l'état propagé du {@link SolveurPaquet} forment la base, au niveau 0 de son
+ * historique. Chaque {@link #restriction(String, Predicate)} est une hypothèse posée dans un nouveau niveau: la
+ * retirer revient au niveau précédent, sans reconstruire ni repropager la base. La solution d'une résolution occupe
+ * un niveau au-dessus des hypothèses, abandonné à la prochaine modification de la session.
+ * <p>
+ * Un mod est toujours chargé dans la base: les hypothèses sont retirées le temps du chargement puis rejouées.
+ */
+public class SessionSolveur implements Resolveur {
+	private final SolveurPaquet                               solveur;
+	/** Hypothèses dans l'ordre où elles ont été posées, le niveau de chacune est son rang plus un. */
+	private final List<Map.Entry<String, Predicate<Version>>> hypotheses = new ArrayList<>();
+	/** Nombre d'hypothèses compatibles entre elles et avec la base, -1 si la base est incohérente. */
+	private       int                                         coherentes;
+	
+	/** @param solveur solveur au niveau 0, ses variables et contraintes deviennent la base de la session. */
+	public SessionSolveur(final SolveurPaquet solveur) {
+		this.solveur = solveur;
+		this.coherentes = solveur.coherence() ? 0 : -1;
+	}
+	
+	public SolveurPaquet solveur() {
+		return this.solveur;
+	}
+	
+	/** @return {@code true} si aucune hypothèse n'a encore vidé de domaine. */
+	public boolean coherente() {
+		return this.coherentes == this.hypotheses.size();
+	}
+	
+	/** Nombre d'hypothèses posées. */
+	public int hypotheses() {
+		return this.hypotheses.size();
+	}
+	
+	@Override
+	public void ajoutVariable(final String modid, final Collection<Version> versions) {
+		this.solveur.historique.retour(0);
+		this.solveur.ajoutVariable(modid, versions);
+		this.rejouer(0);
+	}
+	
+	@Override
+	public void initialisationMod(final String modid) {
+		if (this.solveur.contient(modid)) return;
+		this.solveur.historique.retour(0);
+		this.solveur.initialisationMod(modid);
+		this.rejouer(0);
+	}
+	
+	/** Pose une hypothèse: seules les versions acceptables du mod restent possibles jusqu'à son retrait. */
+	@Override
+	public void restriction(final String modid, final Predicate<Version> acceptable) {
+		this.initialisationMod(modid);
+		this.hypotheses.add(new AbstractMap.SimpleEntry<>(modid, acceptable));
+		this.rejouer(this.hypotheses.size() - 1);
+	}
+	
+	/** Retire la dernière hypothèse posée. */
+	public void retrait() {
+		this.retrait(this.hypotheses.size() - 1);
+	}
+	
+	/** Retire la dernière hypothèse posée sur un mod, les hypothèses suivantes sont rejouées. */
+	public void retrait(final String modid) {
+		for (int i = this.hypotheses.size() - 1; i >= 0; i--)
+			if (this.hypotheses.get(i).getKey().equals(modid)) {
+				this.retrait(i);
+				return;
+			}
+		throw new NoSuchElementException("Aucune hypothèse sur " + modid);
+	}
+	
+	private void retrait(final int indice) {
+		this.hypotheses.remove(indice);
+		this.rejouer(indice);
+	}
+	
+	/** Annule les hypothèses à partir de {@code depuis} et les pose de nouveau, chacune dans son niveau. */
+	private void rejouer(final int depuis) {
+		this.solveur.historique.retour(depuis);
+		this.coherentes = Math.min(this.coherentes, depuis);
+		// un échec de la base est définitif, voir Solveur#coherence()
+		if (depuis == 0) this.coherentes = this.solveur.coherence() ? 0 : -1;
+		for (int i = depuis; i < this.hypotheses.size(); i++) {
+			this.solveur.historique.nouveauNiveau();
+			final Map.Entry<String, Predicate<Version>> hypothese = this.hypotheses.get(i);
+			this.solveur.restriction(hypothese.getKey(), hypothese.getValue());
+			// propagation même après un échec: elle efface l'échec laissé par la restriction
+			final boolean coherent = this.solveur.coherence();
+			if (this.coherentes == i && coherent) this.coherentes++;
+		}
+	}
+	
+	/**
+	 * "Puis-je ajouter ce mod ?": pose l'hypothèse, résout, puis la retire.
+	 *
+	 * @return {@code true} si une solution existe avec l'hypothèse.
+	 */
+	public boolean essai(final String modid, final Predicate<Version> acceptable) {
+		this.restriction(modid, acceptable);
+		try {
+			return this.resolution();
+		} finally {
+			this.retrait();
+		}
+	}
+	
+	/**
+	 * Cherche un ensemble minimal d'hypothèses incompatibles par {@link Diagnostic#quickXplain(Diagnostic.Pile, List)}:
+	 * chaque test pose ou retire une hypothèse au-dessus des précédentes, la base n'est jamais repropagée. L'objectif
+	 * est suspendu pendant la recherche, seule l'existence d'une solution compte. Les hypothèses sont rétablies à la
+	 * fin.
+	 *
+	 * @return les hypothèses en cause dans leur ordre de pose, vide si la base seule est incohérente, {@code null} si
+	 * les hypothèses sont compatibles.
+	 * @throws Diagnostic.Interruption si une résolution a épuisé le budget sans conclure.
+	 */
+	@Override
+	public List<Map.Entry<String, Predicate<Version>>> conflitMinimal() {
+		final List<Map.Entry<String, Predicate<Version>>> posees = new ArrayList<>(this.hypotheses);
+		final Objectif<String, Version> objectif = this.solveur.objectif();
+		this.hypotheses.clear();
+		this.solveur.historique.retour(0);
+		this.solveur.optimisation(null);
+		this.rejouer(0);
+		try {
+			return Diagnostic.quickXplain(new Diagnostic.Pile<Map.Entry<String, Predicate<Version>>>() {
+				@Override
+				public void ajout(Map.Entry<String, Predicate<Version>> hypothese) {
+					restriction(hypothese.getKey(), hypothese.getValue());
+				}
+				
+				@Override
+				public void retrait() {
+					SessionSolveur.this.retrait();
+				}
+				
+				@Override
+				public boolean coherente() {
+					return resolution();
+				}
+				
+				@Override
+				public boolean interrompue() {
+					return SessionSolveur.this.interrompue();
+				}
+			}, posees);
+		} finally {
+			this.hypotheses.clear();
+			this.hypotheses.addAll(posees);
+			this.solveur.historique.retour(0);
+			this.solveur.optimisation(objectif);
+			this.rejouer(0);
+		}
+	}
+	
+	/**
+	 * "Quels mods puis-je ajouter ?": {@link #essai(String, Predicate)} pour chaque mod, en parallèle. Les mods sont
+	 * d'abord chargés, puis chaque essai part d'une copie de l'état propagé avec les hypothèses, voir {@link
+	 * Solveur#essais(List, Predicate)}.
+	 *
+	 * @return la version choisie pour chaque mod installable, les autres sont absents.
+	 */
+	public Map<String, Version> installables(final Collection<String> modids) {
+		modids.forEach(this::initialisationMod);
+		if (!this.preparation()) return Collections.emptyMap();
+		return this.solveur.essais(new ArrayList<>(modids), Objects::nonNull);
+	}
+	
+	@Override
+	public boolean resolution() {
+		return this.preparation() && this.solveur.resolution();
+	}
+	
+	@Override
+	public boolean resolutionPortfolio(final int recherches) {
+		return this.preparation() && this.solveur.resolutionPortfolio(recherches);
+	}
+	
+	@Override
+	public boolean resolutionParallele(final int profondeur) {
+		return this.preparation() && this.solveur.resolutionParallele(profondeur);
+	}
+	
+	@Override
+	public boolean resolutionComposantes(final boolean parallele) {
+		return this.preparation() && this.solveur.resolutionComposantes(parallele);
+	}
+	
+	/** Abandonne la solution précédente. */
+	private boolean preparation() {
+		this.solveur.historique.retour(this.hypotheses.size());
+		return this.coherente();
+	}
+	
+	@Override
+	public Set<String> variables() {
+		return this.solveur.variables();
+	}
+	
+	@Override
+	public Version solution(final String modid) {
+		return this.solveur.solution(modid);
+	}
+	
+	@Override
+	public void optimisation(final Objectif<String, Version> objectif) {
+		this.solveur.optimisation(objectif);
+	}
+	
+	/** Capture la base et les hypothèses, sans la solution de la dernière résolution. */
+	@Override
+	public Probleme probleme() {
+		this.solveur.historique.retour(this.hypotheses.size());
+		return this.solveur.probleme();
+	}
+	
+	@Override
+	public Statistiques statistiques() {
+		return this.solveur.statistiques();
+	}
+	
+	@Override
+	public void budget(final Budget budget) {
+		this.solveur.budget(budget);
+	}
+	
+	@Override
+	public boolean interrompue() {
+		return this.solveur.interrompue();
+	}
+	
+	@Override
+	public Map<String, Version> solutionPartielle() {
+		return this.solveur.solutionPartielle();
+	}
+	
+	@Override
+	public void ordreValeurs(final OrdreValeurs<String, Version> ordre) {
+		this.solveur.ordreValeurs(ordre);
+	}
+	
+	@Override
+	public long[] valeurObjectif() {
+		return this.solveur.valeurObjectif();
+	}
+	
+	@Override
+	public Set<String> echecs() {
+		return this.solveur.echecs();
+	}
+}
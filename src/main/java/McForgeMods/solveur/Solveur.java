@@ -1,126 +1,794 @@
 package McForgeMods.solveur;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Solveur de contraintes générique.
+ * <p>
+ * Chaque variable reçoit un indice dense dans l'ordre d'enregistrement. La propagation est orientée contraintes
+ * (AC-3): une modification de domaine place dans une {@link FileContraintes} les contraintes qui surveillent la
+ * variable, chacune au plus une fois.
+ * <p>
+ * Chaque domaine porte une explication: l'ensemble des niveaux de décision responsables de ses suppressions. Une
+ * suppression faite par une contrainte hérite des explications des autres variables de sa {@link Contrainte#portee()}.
+ * Lors d'un échec, la résolution remonte directement au niveau de la décision la plus récente de l'explication
+ * (<i>backjumping</i>) et retient la combinaison fautive sous forme de {@link ContrainteNogood}.
+ *
+ * @param <K>: type des variables
+ * @param <D>: type des valeurs associées aux variables
+ */
 public class Solveur<K, D> {
-	protected final Map<K, Domaine<D>>             domaines    = new HashMap<>();
-	protected final Map<K, List<Contrainte<K, D>>> contraintes = new HashMap<>();
-	private final   LinkedList<K>                  modifies    = new LinkedList<>();
+	/** Indice de chaque variable, dans l'ordre d'enregistrement. */
+	protected final Map<K, Integer>                   indices           = new LinkedHashMap<>();
+	/** Variable associée à chaque indice. */
+	protected final ArrayList<K>                      cles              = new ArrayList<>();
+	protected final ArrayList<Domaine<D>>             domaines          = new ArrayList<>();
+	/** Contraintes surveillant chaque variable. */
+	protected final ArrayList<List<Contrainte<K, D>>> surveillance      = new ArrayList<>();
+	protected final ArrayList<Contrainte<K, D>>       contraintes       = new ArrayList<>();
+	private final   FileContraintes                   file              = new FileContraintes();
+	protected final Historique<D>                     historique        = new Historique<>();
+	/** Contrainte en cours de révision, elle n'est pas remise en file par ses propres modifications. */
+	private         Contrainte<K, D>                  courante          = null;
+	/** Un domaine a été vidé depuis la dernière propagation. */
+	private         boolean                           echec             = false;
+	/** Un domaine a été vidé au niveau 0: l'échec est définitif. */
+	private         boolean                           insatisfiable     = false;
+	/** Contrainte responsable du dernier domaine vidé. */
+	private         Contrainte<K, D>                  coupable          = null;
+	/** Explication du dernier domaine vidé. */
+	private         BitSet                            conflit           = new BitSet();
+	/** Explication des modifications faites hors de toute contrainte, le niveau actuel si {@code null}. */
+	private         BitSet                            raison            = null;
+	private         SelecteurVariable                 selecteur         = new SelecteurVariable.DomainePoids();
+	/** Objectif à minimiser, {@code null} pour accepter la première solution. */
+	private         Objectif<K, D>                    objectif          = null;
+	/** Ordre d'essai des valeurs, {@code null} pour l'ordre initial des domaines. */
+	private         OrdreValeurs<K, D>                ordreValeurs      = null;
+	/** Rangs de chaque variable triés selon {@link #ordreValeurs}, jamais modifiés une fois calculés. */
+	private final   ArrayList<int[]>                  ordres            = new ArrayList<>();
+	/**
+	 * Classes de valeurs équivalentes de chaque variable: le bit {@code r} lie les rangs {@code r} et {@code r + 1},
+	 * qu'aucune contrainte ne distingue. Sans objectif, une valeur réfutée entraîne toute sa classe.
+	 */
+	private final   ArrayList<BitSet>                 classes           = new ArrayList<>();
+	/** Générateur des choix aléatoires de valeurs, {@code null} pour une recherche déterministe. */
+	private         Random                            hasard            = null;
+	/** Probabilité de choisir une valeur au hasard plutôt que la valeur préférée. */
+	private         double                            probabiliteHasard = 0;
+	/** Interrompt la résolution dès qu'il passe à {@code true}, partagé entre recherches concurrentes. */
+	private         AtomicBoolean                     annulation        = null;
+	/** La dernière résolution a été interrompue avant sa fin. */
+	private         boolean                           interrompue       = false;
+	/** Limites de chaque résolution. */
+	private         Budget                            budget            = Budget.ILLIMITE;
+	/** La dernière résolution a été interrompue par son {@link #budget}. */
+	private         boolean                           budgetEpuise      = false;
+	/** Variables fixées quand la dernière résolution a épuisé son budget sans solution. */
+	private         Map<K, D>                         partielle         = Collections.emptyMap();
+	private final   Statistiques                      statistiques      = new Statistiques();
+	/** Nombre maximal de décisions d'un nogood appris, les conflits plus larges ne sont pas retenus. */
+	public          int                               tailleMaxNogood   = 8;
+	/** Nombre d'échecs avant le premier redémarrage, multiplié par la suite de Luby. 0 désactive les redémarrages. */
+	public          int                               uniteRedemarrage  = 0;
+	
+	public Solveur() {
+		this.selecteur.initialisation(this);
+	}
+	
+	/**
+	 * Copie l'état actuel d'un solveur, qui devient l'état définitif de la copie. Les contraintes ne dépendent que des
+	 * domaines du solveur qui les révise, elles sont partagées. La copie utilise un sélecteur de même stratégie.
+	 */
+	protected Solveur(final Solveur<K, D> source) {
+		this();
+		this.indices.putAll(source.indices);
+		this.cles.addAll(source.cles);
+		for (final Domaine<D> domaine : source.domaines) {
+			final Domaine<D> copie = new Domaine<>(domaine);
+			copie.solveur = this;
+			copie.indice = domaine.indice;
+			this.domaines.add(copie);
+		}
+		for (final List<Contrainte<K, D>> liste : source.surveillance)
+			this.surveillance.add(new ArrayList<>(liste));
+		for (final BitSet classes : source.classes)
+			this.classes.add((BitSet) classes.clone());
+		this.contraintes.addAll(source.contraintes);
+		this.file.ajoutTout(source.file);
+		this.echec = source.echec;
+		this.insatisfiable = source.insatisfiable;
+		this.tailleMaxNogood = source.tailleMaxNogood;
+		this.uniteRedemarrage = source.uniteRedemarrage;
+		this.budget = source.budget;
+		this.statistiques.detail = source.statistiques.detail;
+		this.selecteur(source.selecteur.copie());
+		if (source.objectif != null) this.optimisation(source.objectif.copie());
+		this.ordreValeurs = source.ordreValeurs;
+		this.ordres.addAll(source.ordres);
+	}
+	
+	/** @see #Solveur(Solveur) */
+	public Solveur<K, D> copie() {
+		return new Solveur<>(this);
+	}
 	
 	public Set<K> variables() {
-		return this.domaines.keySet();
+		return Collections.unmodifiableSet(this.indices.keySet());
+	}
+	
+	/** @return {@code true} si la variable est enregistrée. */
+	public boolean contient(final K id) {
+		return this.indices.containsKey(id);
 	}
 	
 	/** Enregistre une nouvelle variable et initialise son domaine. */
 	public void ajoutVariable(final K id, Collection<D> versions) {
-		assert !domaines.containsKey(id);
-		this.domaines.put(id, new Domaine<>(versions));
-		this.contraintes.put(id, new ArrayList<>());
-		this.marquerVariable(id);
+		assert !indices.containsKey(id);
+		final Domaine<D> domaine = new Domaine<>(versions);
+		domaine.solveur = this;
+		domaine.indice = this.domaines.size();
+		domaine.niveau = this.historique.niveau();
+		this.indices.put(id, domaine.indice);
+		this.cles.add(id);
+		this.domaines.add(domaine);
+		this.surveillance.add(new ArrayList<>());
+		// sans contrainte, toutes les valeurs sont équivalentes
+		final BitSet classes = new BitSet();
+		if (domaine.capacite() > 1) classes.set(0, domaine.capacite() - 1);
+		this.classes.add(classes);
+		this.selecteur.ajoutVariable(domaine.indice);
+		if (this.objectif != null) this.objectif.ajoutVariable(domaine.indice);
+		if (this.ordreValeurs != null) this.ordres.add(this.ordre(id, domaine));
+		if (domaine.size() == 0) this.echec = true;
 	}
 	
-	/** Enregistre une nouvelle contrainte. Les variables utilisées doivent avoir été enregistrées. */
+	/**
+	 * Enregistre une nouvelle contrainte. Les variables utilisées doivent avoir été enregistrées. La contrainte est
+	 * placée dans la file de propagation. Les valeurs que la contrainte distingue ne sont plus équivalentes.
+	 */
 	public void ajoutContrainte(final Contrainte<K, D> dependance) {
+		this.enregistrement(dependance);
+		for (final int v : dependance.indicesPortee)
+			dependance.separation(this.cles.get(v), this.classes.get(v));
+	}
+	
+	/**
+	 * Enregistre une contrainte sans séparer de classe de valeurs équivalentes: les nogoods appris découlent des
+	 * autres contraintes, deux valeurs équivalentes y sont réfutées ensemble.
+	 */
+	private void enregistrement(final Contrainte<K, D> dependance) {
+		dependance.indice = this.contraintes.size();
+		this.contraintes.add(dependance);
 		for (final K id : dependance.variables) {
-			assert contraintes.containsKey(id);
-			contraintes.get(id).add(dependance);
+			assert indices.containsKey(id);
+			surveillance.get(indices.get(id)).add(dependance);
 		}
+		dependance.indicesPortee = dependance.portee().stream().distinct().mapToInt(this.indices::get).toArray();
+		this.selecteur.ajoutContrainte(dependance);
+		this.file.ajout(dependance.indice);
+	}
+	
+	/** Choisit la stratégie de sélection des variables pour les prochaines résolutions. */
+	public void selecteur(final SelecteurVariable selecteur) {
+		this.selecteur = selecteur;
+		selecteur.initialisation(this);
+	}
+	
+	public SelecteurVariable selecteur() {
+		return this.selecteur;
+	}
+	
+	/**
+	 * Active l'optimisation: la résolution cherche alors la solution de plus petit coût au lieu de la première
+	 * trouvée. {@code null} désactive l'optimisation.
+	 */
+	public void optimisation(final Objectif<K, D> objectif) {
+		this.objectif = objectif;
+		if (objectif != null) objectif.initialisation(this);
+	}
+	
+	/** Objectif actuel, {@code null} sans optimisation. */
+	Objectif<K, D> objectif() {
+		return this.objectif;
+	}
+	
+	/**
+	 * Choisit l'ordre d'essai des valeurs de toutes les variables, présentes et à venir. {@code null} rétablit l'ordre
+	 * initial des domaines. L'ordre initial reste celui des rangs sur lesquels s'appuient les contraintes.
+	 */
+	public void ordreValeurs(final OrdreValeurs<K, D> ordreValeurs) {
+		this.ordreValeurs = ordreValeurs;
+		this.ordres.clear();
+		if (ordreValeurs != null) for (int indice = 0; indice < this.domaines.size(); indice++)
+			this.ordres.add(this.ordre(this.cles.get(indice), this.domaines.get(indice)));
+	}
+	
+	/** Trie les rangs d'un domaine par priorité croissante, à égalité par rang. */
+	private int[] ordre(final K id, final Domaine<D> domaine) {
+		final long[][] priorites = new long[domaine.capacite()][];
+		for (int rang = 0; rang < priorites.length; rang++)
+			priorites[rang] = this.ordreValeurs.priorite(id, domaine.valeurRang(rang), rang);
+		return IntStream.range(0, priorites.length).boxed()
+				.sorted((a, b) -> Arrays.compare(priorites[a], priorites[b])).mapToInt(Integer::intValue).toArray();
+	}
+	
+	/**
+	 * Choisit parfois une valeur au hasard plutôt que la valeur préférée.
+	 *
+	 * @param probabilite probabilité de chaque choix aléatoire, 0 pour une recherche déterministe.
+	 */
+	public void hasard(final Random hasard, final double probabilite) {
+		this.hasard = hasard;
+		this.probabiliteHasard = probabilite;
+	}
+	
+	/** Partage un indicateur d'annulation: la résolution s'arrête dès qu'il passe à {@code true}. */
+	public void annulation(final AtomicBoolean annulation) {
+		this.annulation = annulation;
+	}
+	
+	/** @return {@code true} si la dernière résolution a été interrompue avant de conclure. */
+	public boolean interrompue() {
+		return this.interrompue;
+	}
+	
+	/** Compteurs d'activité de toutes les résolutions, avec ceux des copies retenues par les recherches parallèles. */
+	public Statistiques statistiques() {
+		return this.statistiques;
+	}
+	
+	/** Limite chaque résolution, ainsi que celles des copies du solveur. */
+	public void budget(final Budget budget) {
+		this.budget = budget;
+	}
+	
+	/** @return {@code true} si la dernière résolution s'est arrêtée faute de budget. */
+	public boolean budgetEpuise() {
+		return this.budgetEpuise;
+	}
+	
+	/**
+	 * Affectation partielle atteinte quand la dernière résolution a épuisé son budget sans trouver de solution: les
+	 * variables fixées par les décisions et leur propagation, sans conflit connu avec les autres variables.
+	 *
+	 * @return les valeurs des variables fixées, vide si la résolution n'a pas été interrompue par son budget.
+	 */
+	public Map<K, D> solutionPartielle() {
+		return Collections.unmodifiableMap(this.partielle);
+	}
+	
+	/** Relève les variables fixées dans l'état actuel. */
+	private Map<K, D> fixees() {
+		final Map<K, D> fixees = new LinkedHashMap<>();
+		for (int v = 0; v < this.domaines.size(); v++)
+			if (this.domaines.get(v).size() == 1) fixees.put(this.cles.get(v), this.domaines.get(v).get(0));
+		return fixees;
+	}
+	
+	/** Coût de la solution retenue par la dernière optimisation, {@code null} sans objectif ou sans solution. */
+	public long[] valeurObjectif() {
+		return this.objectif == null ? null : this.objectif.valeur();
 	}
 	
 	/** Retourne le domaine de valeur associé à une variable. */
 	public Domaine<D> domaineVariable(final K id) {
-		assert this.domaines.containsKey(id);
-		return this.domaines.get(id);
+		assert this.indices.containsKey(id);
+		return this.domaines.get(this.indices.get(id));
 	}
 	
 	/**
 	 * Marque la modification du domaine d'une variable. La contrainte doit ensuite être propagée en utilisant la
 	 * fonction {@link #coherence()}.
+	 * <p>
+	 * Les domaines enregistrés préviennent eux-même le solveur de leurs modifications, l'appel explicite n'est utile
+	 * que pour forcer une nouvelle révision.
 	 *
 	 * @param id identifiant de la variable.
 	 */
 	public void marquerVariable(final K id) {
-		assert this.domaines.containsKey(id);
-		if (!this.modifies.contains(id)) {
-			this.modifies.add(id);
+		assert this.indices.containsKey(id);
+		this.reveil(this.indices.get(id));
+	}
+	
+	/** Le domaine de la variable vient d'être réduit: complète son explication et propage. */
+	void modification(final int variable) {
+		final Domaine<D> domaine = this.domaines.get(variable);
+		// les suppressions du niveau 0 sont définitives, elles n'ont pas besoin d'explication
+		if (this.historique.niveau() > 0) {
+			if (this.courante != null) {
+				for (final int v : this.courante.indicesPortee)
+					if (v != variable) domaine.explication.or(this.domaines.get(v).explication);
+			} else if (this.raison != null) domaine.explication.or(this.raison);
+			else domaine.explication.set(this.historique.niveau());
+		}
+		this.reveil(variable);
+	}
+	
+	/** Place en file toutes les contraintes surveillant la variable. */
+	private void reveil(final int variable) {
+		final Domaine<D> domaine = this.domaines.get(variable);
+		if (domaine.size() == 0 && !this.echec) {
+			this.echec = true;
+			this.statistiques.echecs++;
+			this.coupable = this.courante;
+			this.conflit = (BitSet) domaine.explication.clone();
+		}
+		this.selecteur.modification(variable);
+		if (this.objectif != null) this.objectif.modification(variable);
+		for (final Contrainte<K, D> contrainte : this.surveillance.get(variable)) {
+			if (contrainte != this.courante) this.file.ajout(contrainte.indice);
 		}
 	}
 	
 	/**
 	 * Assure la cohérence des dépendances.
+	 * <p>
+	 * La propagation s'arrête dès qu'un domaine est vidé, la file est alors vidée. Un échec au niveau 0 ne peut pas
+	 * être annulé: toute propagation suivante échoue aussi.
 	 *
 	 * @return {@code true} si le solveur est dans un état cohérent.
 	 */
 	public boolean coherence() {
-		boolean coherent = true;
-		while (!modifies.isEmpty()) {
-			final K modid = modifies.removeFirst();
-			if (this.domaineVariable(modid).size() == 0) {
-				coherent = false;
-				continue;
-			}
-			
-			for (final Contrainte<K, D> contrainte : this.contraintes.get(modid)) {
-				contrainte.reductionArc(this);
+		if (this.insatisfiable) return false;
+		while (!this.echec && !this.file.isEmpty()) {
+			this.courante = this.contraintes.get(this.file.retrait());
+			this.statistiques.revisions++;
+			final long debut = this.statistiques.detail ? System.nanoTime() : 0;
+			try {
+				this.courante.reductionArc(this);
+			} finally {
+				if (this.statistiques.detail) this.statistiques.revision(this.courante, System.nanoTime() - debut);
+				this.courante = null;
 			}
 		}
-		return coherent;
+		if (this.echec) {
+			if (this.coupable != null) this.selecteur.echec(this.coupable);
+			if (this.historique.niveau() == 0) this.insatisfiable = true;
+			this.file.clear();
+			this.echec = false;
+			this.coupable = null;
+			return false;
+		}
+		return true;
 	}
 	
 	/**
-	 * Sélectionne une variable qui possède encore des libertés.
+	 * Un domaine a été restauré par l'historique.
+	 *
+	 * @param avant mots du domaine avant la restauration, sous-ensemble des mots rétablis.
 	 */
-	private Optional<K> cleLibre() {
-		for (final Map.Entry<K, Domaine<D>> variable : this.domaines.entrySet()) {
-			if (variable.getValue().size() > 1) return Optional.of(variable.getKey());
-		}
-		return Optional.empty();
+	void restauration(final int variable, final long[] avant) {
+		this.selecteur.modification(variable);
+		if (this.objectif != null) this.objectif.restauration(variable, avant);
 	}
 	
 	/**
 	 * Tente de résoudre toutes les contraintes et sélectionne une valeurs par variable déclarée.
+	 * <p>
+	 * Chaque décision ouvre un niveau de l'{@link #historique}. En cas d'échec, l'explication du domaine vidé désigne
+	 * les décisions responsables: la résolution revient juste avant la plus récente d'entre elles, désactive la valeur
+	 * choisie avec pour explication les autres décisions, et abandonne les décisions intermédiaires qui n'ont pas
+	 * participé au conflit. Un conflit sans décision prouve que le problème est insatisfiable.
+	 * <p>
+	 * Une valeur réfutée par un conflit qui ne dépend que de sa propre décision est désactivée au niveau de départ de
+	 * la recherche, et y reste après la résolution: elle ne figure dans aucune solution de cet état, la retirer est
+	 * une déduction comme une autre. Partie du niveau 0, la réfutation est définitive. Les valeurs écartées par la
+	 * borne d'un {@link Objectif} ne sont pas des déductions: la recherche s'ouvre alors sur un niveau supplémentaire,
+	 * toujours annulé.
+	 * <p>
+	 * Avec un {@link Objectif}, chaque variable prend d'abord sa valeur de plus petit coût. Chaque solution trouvée est
+	 * retenue puis la recherche continue: toute branche dont la borne inférieure atteint le coût de la meilleure
+	 * solution est abandonnée comme un échec de toutes ses décisions. À la fin de la recherche, la meilleure solution
+	 * est rétablie dans un nouveau niveau. Les variables doivent toutes être enregistrées avant la résolution.
+	 * <p>
+	 * Quand le {@link #budget(Budget) budget} est épuisé, la meilleure solution déjà trouvée est rétablie. Sans
+	 * solution, la résolution échoue et les variables fixées à cet instant restent disponibles par {@link
+	 * #solutionPartielle()}.
 	 *
 	 * @return {@code true} si la résolution est possible
 	 */
 	public boolean resolution() {
-		if (!this.coherence()) return false;
-		final LinkedList<K> historique = new LinkedList<>();
+		this.interrompue = false;
+		this.budgetEpuise = false;
+		this.partielle = Collections.emptyMap();
+		long debut = System.nanoTime();
+		final boolean coherent = this.coherence();
+		this.statistiques.phase("coherence", debut);
+		if (!coherent) return false;
+		debut = System.nanoTime();
+		try {
+			return this.recherche();
+		} finally {
+			this.statistiques.phase("recherche", debut);
+		}
+	}
+	
+	/** Recherche depuis un état cohérent, voir {@link #resolution()}. */
+	private boolean recherche() {
+		final int depart = this.historique.niveau();
+		// les valeurs écartées par la borne ne doivent pas l'être définitivement: la recherche s'ouvre sur un niveau
+		// supplémentaire, annulé avant de rétablir la meilleure solution.
+		if (this.objectif != null) this.historique.nouveauNiveau();
+		final int base = this.historique.niveau();
+		// décision de chaque niveau au-dessus de la base
+		final ArrayList<Integer> decisions = new ArrayList<>();
+		final ArrayList<D> choix = new ArrayList<>();
+		// meilleure solution trouvée, valeur de chaque variable
+		List<D> solution = null;
+		if (this.objectif != null) this.objectif.nouvelleRecherche();
+		final long debut = System.nanoTime();
+		long decisionsFaites = 0, retoursFaits = 0;
+		// redémarrages: nombre d'échecs depuis le dernier et limite actuelle
+		int redemarrages = 1;
+		long echecs = 0;
+		long limite = SolveurSAT.luby(redemarrages) * this.uniteRedemarrage;
 		
-		Optional<K> variable = this.cleLibre();
-		while (variable.isPresent()) {
-			final K var = variable.get();
-			final Domaine<D> domaine = this.domaineVariable(var);
-			
-			if (domaine.size() >= 1) {
-				final D valeur = domaine.get(0);
-				this.domaines.values().forEach(Domaine::push);
-				domaine.reduction(valeur);
-				
-				this.marquerVariable(var);
-				if (this.coherence()) {
-					// enregistre l'historique
-					historique.push(var);
-					variable = this.cleLibre();
-				} else {
-					this.domaines.values().forEach(Domaine::pop);
-					// désactive la valeur problématique
-					domaine.remove(valeur);
-					// if (domaine.size() != 0) this.domaines.values().forEach(Domaine::push);
+		boolean coherent = true;
+		while (true) {
+			if (this.annulation != null && this.annulation.get()) {
+				this.interrompue = true;
+				this.historique.retour(depart);
+				return false;
+			}
+			// les nogoods appris sont conservés, la recherche reprend depuis la base avec les nouveaux poids
+			if (coherent && limite > 0 && echecs >= limite && this.objectif == null) {
+				this.historique.retour(base);
+				decisions.clear();
+				choix.clear();
+				echecs = 0;
+				limite = SolveurSAT.luby(++redemarrages) * this.uniteRedemarrage;
+			}
+			// la branche ne peut plus améliorer la meilleure solution: toutes les décisions sont en cause
+			boolean elagage = false;
+			if (coherent) {
+				if (this.budget.epuise(debut, decisionsFaites, retoursFaits)) {
+					this.interrompue = true;
+					this.budgetEpuise = true;
+					if (solution != null) break;
+					this.partielle = this.fixees();
+					this.historique.retour(depart);
+					return false;
 				}
-			} else {
-				if (historique.size() == 0) return false;
+				if (this.objectif != null && !this.objectif.prometteur()) elagage = true;
 				else {
-					// rétablissement de l'historique au dernier état valide et désactivation de la dernière valeur
-					// choisie.
-					final K h = historique.pop();
-					final D erreur = this.domaineVariable(h).get(0);
-					this.domaines.values().forEach(Domaine::pop);
-					this.domaineVariable(h).remove(erreur);
-					this.marquerVariable(h);
-					variable = Optional.of(h);
+					final int variable = this.selecteur.selection();
+					if (variable >= 0) {
+						final Domaine<D> domaine = this.domaines.get(variable);
+						final D valeur = this.choixValeur(variable);
+						
+						this.historique.nouveauNiveau();
+						decisionsFaites++;
+						this.statistiques.decisions++;
+						decisions.add(variable);
+						this.statistiques.profondeurMax = Math.max(this.statistiques.profondeurMax, decisions.size());
+						choix.add(valeur);
+						domaine.reduction(valeur);
+						coherent = this.coherence();
+						continue;
+					}
+					if (this.objectif == null) return true;
+					this.objectif.enregistrement();
+					solution = this.domaines.stream().map(d -> d.get(0)).collect(Collectors.toList());
+					elagage = true;
 				}
 			}
+			
+			final BitSet conflit;
+			if (elagage) {
+				conflit = new BitSet();
+				conflit.set(base + 1, this.historique.niveau() + 1);
+			} else conflit = this.conflit;
+			// seuls les niveaux au-dessus de la base portent des décisions. Les niveaux ouverts avant la résolution,
+			// comme les hypothèses d'une SessionSolveur, restent dans les explications: un conflit qui en dépend n'est
+			// pas appris, il ne survivrait pas à leur retrait.
+			final int premier = conflit.nextSetBit(1);
+			if (premier < 0 || conflit.length() - 1 <= base) break;
+			retoursFaits++;
+			this.statistiques.retours++;
+			final boolean hypothetique = premier <= base;
+			if (!elagage) echecs++;
+			final int niveau = conflit.length() - 1;
+			final int h = decisions.get(niveau - base - 1);
+			final D erreur = choix.get(niveau - base - 1);
+			// en optimisation, les explications peuvent dépendre de la borne: aucun nogood n'est retenu
+			if (this.objectif == null && !hypothetique) this.apprentissage(conflit, decisions, choix, base);
+			
+			// rétablissement de l'historique avant la décision fautive et désactivation de sa valeur.
+			this.historique.retour(niveau - 1);
+			decisions.subList(niveau - base - 1, decisions.size()).clear();
+			choix.subList(niveau - base - 1, choix.size()).clear();
+			conflit.clear(niveau);
+			this.raison = conflit;
+			try {
+				this.refutation(h, erreur);
+			} finally {
+				this.raison = null;
+			}
+			coherent = this.coherence();
 		}
-		return true;
+		
+		this.historique.retour(depart);
+		if (solution == null) return false;
+		assert solution.size() == this.domaines.size();
+		this.historique.nouveauNiveau();
+		for (int v = 0; v < solution.size(); v++)
+			this.domaines.get(v).reduction(solution.get(v));
+		return this.coherence();
+	}
+	
+	/** Résolution par un portefeuille de {@code recherches} configurations, voir {@link Portfolio#configurations(int)}. */
+	public boolean resolutionPortfolio(final int recherches) {
+		return this.resolutionPortfolio(Portfolio.configurations(recherches));
+	}
+	
+	/**
+	 * Lance une recherche concurrente par configuration, chacune sur une copie du solveur, et retient le résultat de
+	 * la première terminée. Sa solution est rétablie dans un nouveau niveau, comme par {@link #resolution()}.
+	 * <p>
+	 * Avec un {@link Objectif}, la première recherche terminée a prouvé l'optimalité de sa solution.
+	 *
+	 * @return {@code true} si la résolution est possible
+	 */
+	public boolean resolutionPortfolio(final List<Portfolio.Configuration> configurations) {
+		if (!this.coherence()) return false;
+		final Portfolio.Course<K, D> gagnante = Portfolio.course(this, configurations);
+		this.interrompue = gagnante.solveur.interrompue;
+		this.budgetEpuise = gagnante.solveur.budgetEpuise;
+		this.partielle = gagnante.solveur.partielle;
+		this.statistiques.ajout(gagnante.solveur.statistiques);
+		return gagnante.resultat && this.adoption(gagnante.solveur);
+	}
+	
+	/** Résolution parallèle dans le {@link ForkJoinPool#commonPool()}. */
+	public boolean resolutionParallele(final int profondeur) {
+		return this.resolutionParallele(ForkJoinPool.commonPool(), profondeur);
+	}
+	
+	/**
+	 * Découpe l'arbre de recherche: chaque valeur des variables choisies sur les {@code profondeur} premiers niveaux
+	 * est explorée par une tâche du {@code pool}, sur sa propre copie du solveur. La solution retenue est rétablie dans
+	 * un nouveau niveau, comme par {@link #resolution()}.
+	 *
+	 * @see RechercheParallele
+	 */
+	public boolean resolutionParallele(final ForkJoinPool pool, final int profondeur) {
+		if (!this.coherence()) return false;
+		final AtomicBoolean epuise = new AtomicBoolean(false);
+		final Solveur<K, D> gagnant = pool
+				.invoke(new RechercheParallele<>(this.copie(), profondeur, new AtomicBoolean(false), epuise));
+		this.interrompue = this.budgetEpuise = gagnant == null && epuise.get();
+		if (gagnant != null) this.statistiques.ajout(gagnant.statistiques);
+		return gagnant != null && this.adoption(gagnant);
+	}
+	
+	/**
+	 * Regroupe les variables libres en composantes indépendantes: deux variables sont dans la même composante si une
+	 * chaîne de contraintes les relie sans passer par une variable fixée. Les variables fixées, comme {@code minecraft}
+	 * ou {@code forge}, ne relient plus rien: leurs contraintes ont déjà été propagées.
+	 *
+	 * @return les composantes, chacune ordonnée selon sa plus petite variable.
+	 */
+	public List<BitSet> composantes() {
+		final int[] parents = new int[this.domaines.size()];
+		for (int v = 0; v < parents.length; v++)
+			parents[v] = v;
+		for (final Contrainte<K, D> contrainte : this.contraintes) {
+			int premiere = -1;
+			for (final int v : contrainte.indicesPortee) {
+				if (this.domaines.get(v).size() <= 1) continue;
+				if (premiere < 0) premiere = racine(parents, v);
+				else parents[racine(parents, v)] = premiere;
+			}
+		}
+		
+		final Map<Integer, BitSet> composantes = new LinkedHashMap<>();
+		for (int v = 0; v < parents.length; v++)
+			if (this.domaines.get(v).size() > 1)
+				composantes.computeIfAbsent(racine(parents, v), k -> new BitSet()).set(v);
+		return new ArrayList<>(composantes.values());
+	}
+	
+	/** Représentant de l'ensemble d'une variable, les chemins parcourus sont raccourcis. */
+	private static int racine(final int[] parents, int v) {
+		while (parents[v] != v) {
+			parents[v] = parents[parents[v]];
+			v = parents[v];
+		}
+		return v;
+	}
+	
+	/**
+	 * Résout chaque {@link #composantes() composante} séparément: un échec dans une composante ne remet plus en cause
+	 * les décisions prises dans une autre, et l'espace de recherche devient la somme des espaces des composantes au
+	 * lieu de leur produit. La solution de chaque composante est ajoutée au-dessus des précédentes.
+	 * <p>
+	 * Avec un {@link Objectif}, la meilleure solution porte sur toutes les variables: la résolution reste globale.
+	 *
+	 * @return {@code true} si toutes les composantes ont une solution.
+	 */
+	public boolean resolutionComposantes() {
+		if (!this.coherence()) return false;
+		if (this.objectif != null) return this.resolution();
+		final int depart = this.historique.niveau();
+		// le budget porte sur l'ensemble des composantes
+		final Budget budget = this.budget;
+		final long debut = System.nanoTime(), decisions = this.statistiques.decisions;
+		final long retours = this.statistiques.retours;
+		try {
+			for (final BitSet composante : this.composantes()) {
+				this.selecteur.restriction(composante);
+				this.budget = budget.restant(debut, this.statistiques.decisions - decisions,
+						this.statistiques.retours - retours);
+				if (!this.resolution()) {
+					this.historique.retour(depart);
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			this.selecteur.restriction(null);
+			this.budget = budget;
+		}
+	}
+	
+	/** Résolution par composantes, en parallèle dans le {@link ForkJoinPool#commonPool()} si demandé. */
+	public boolean resolutionComposantes(final boolean parallele) {
+		return parallele ? this.resolutionComposantes(ForkJoinPool.commonPool()) : this.resolutionComposantes();
+	}
+	
+	/**
+	 * Résout les {@link #composantes() composantes} en parallèle dans le {@code pool}, chacune sur sa propre copie du
+	 * solveur. Le premier échec interrompt les autres recherches. Les solutions sont réunies dans un nouveau niveau.
+	 *
+	 * @see #resolutionComposantes()
+	 */
+	public boolean resolutionComposantes(final ForkJoinPool pool) {
+		if (!this.coherence()) return false;
+		final List<BitSet> composantes = this.composantes();
+		if (this.objectif != null || composantes.size() <= 1) return this.resolutionComposantes();
+		
+		final AtomicBoolean annulation = new AtomicBoolean(false), epuise = new AtomicBoolean(false);
+		final List<Callable<Solveur<K, D>>> recherches = new ArrayList<>();
+		for (final BitSet composante : composantes)
+			recherches.add(() -> {
+				final Solveur<K, D> copie = this.copie();
+				copie.annulation(annulation);
+				copie.selecteur.restriction(composante);
+				if (copie.resolution()) return copie;
+				if (copie.budgetEpuise) epuise.set(true);
+				annulation.set(true);
+				return null;
+			});
+		
+		final List<Solveur<K, D>> copies = new ArrayList<>();
+		for (final Future<Solveur<K, D>> recherche : pool.invokeAll(recherches)) {
+			try {
+				copies.add(recherche.get());
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException("Résolution d'une composante impossible", e);
+			}
+		}
+		this.interrompue = this.budgetEpuise = epuise.get();
+		for (final Solveur<K, D> copie : copies)
+			if (copie != null) this.statistiques.ajout(copie.statistiques);
+		if (copies.contains(null)) return false;
+		
+		this.historique.nouveauNiveau();
+		for (int i = 0; i < composantes.size(); i++) {
+			final BitSet composante = composantes.get(i);
+			for (int v = composante.nextSetBit(0); v >= 0; v = composante.nextSetBit(v + 1))
+				this.domaines.get(v).reduction(copies.get(i).domaines.get(v).get(0));
+		}
+		return this.coherence();
+	}
+	
+	/** Essais dans le {@link ForkJoinPool#commonPool()}, voir {@link #essais(ForkJoinPool, List, Predicate)}. */
+	public Map<K, D> essais(final List<K> ids, final Predicate<D> acceptable) {
+		return this.essais(ForkJoinPool.commonPool(), ids, acceptable);
+	}
+	
+	/**
+	 * "Que vaudrait chaque variable si elle devait être acceptable ?": une question indépendante par variable, toutes
+	 * posées depuis l'état actuel. Chaque tâche du {@code pool} copie une seule fois le solveur, puis prend les
+	 * questions une à une: restriction dans un nouveau niveau, résolution, retour au niveau de la copie. L'état
+	 * propagé n'est jamais reconstruit, et les nogoods appris par une copie servent aux questions suivantes.
+	 *
+	 * @return la valeur de chaque variable dans une solution où elle est acceptable. Une variable absente n'a aucune
+	 * solution acceptable, ou sa résolution a épuisé le budget.
+	 */
+	public Map<K, D> essais(final ForkJoinPool pool, final List<K> ids, final Predicate<D> acceptable) {
+		if (!this.coherence()) return Collections.emptyMap();
+		final AtomicInteger suivante = new AtomicInteger(0);
+		final List<Callable<Solveur<K, D>>> taches = new ArrayList<>();
+		final List<Map<K, D>> resultats = new ArrayList<>();
+		for (int t = 0; t < Math.min(pool.getParallelism(), ids.size()); t++) {
+			final Map<K, D> resultat = new HashMap<>();
+			resultats.add(resultat);
+			taches.add(() -> {
+				final Solveur<K, D> copie = this.copie();
+				for (int i = suivante.getAndIncrement(); i < ids.size(); i = suivante.getAndIncrement()) {
+					final K id = ids.get(i);
+					copie.historique.nouveauNiveau();
+					copie.domaineVariable(id).removeIf(acceptable.negate());
+					if (copie.coherence() && copie.resolution()) resultat.put(id, copie.domaineVariable(id).get(0));
+					copie.historique.retour(0);
+				}
+				return copie;
+			});
+		}
+		
+		final Map<K, D> valeurs = new HashMap<>();
+		for (final Future<Solveur<K, D>> tache : pool.invokeAll(taches)) {
+			try {
+				this.statistiques.ajout(tache.get().statistiques);
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException("Essai impossible", e);
+			}
+		}
+		resultats.forEach(valeurs::putAll);
+		return valeurs;
+	}
+	
+	/** Rétablit dans un nouveau niveau la solution trouvée par une copie du solveur. */
+	private boolean adoption(final Solveur<K, D> copie) {
+		this.historique.nouveauNiveau();
+		for (int v = 0; v < this.domaines.size(); v++)
+			this.domaines.get(v).reduction(copie.domaines.get(v).get(0));
+		final boolean coherent = this.coherence();
+		if (coherent && this.objectif != null) this.objectif.enregistrement();
+		return coherent;
+	}
+	
+	/** Valeur essayée en premier: la préférée de l'objectif ou de l'ordre des valeurs, parfois une valeur au hasard. */
+	private D choixValeur(final int variable) {
+		final Domaine<D> domaine = this.domaines.get(variable);
+		if (this.hasard != null && this.hasard.nextDouble() < this.probabiliteHasard)
+			return domaine.get(this.hasard.nextInt(domaine.size()));
+		if (this.objectif != null) return domaine.valeurRang(this.objectif.preferee(variable));
+		if (this.ordreValeurs == null) return domaine.premier();
+		for (final int rang : this.ordres.get(variable))
+			if (domaine.actif(rang)) return domaine.valeurRang(rang);
+		return null;
+	}
+	
+	/**
+	 * Désactive une valeur réfutée par la recherche. Sans objectif, les valeurs équivalentes de sa classe sont
+	 * désactivées avec elle: une solution avec l'une d'elles en donnerait une avec la valeur réfutée.
+	 */
+	private void refutation(final int variable, final D valeur) {
+		final Domaine<D> domaine = this.domaines.get(variable);
+		final BitSet classes = this.classes.get(variable);
+		final int rang = domaine.rangValeur(valeur);
+		if (this.objectif != null || rang < 0 || !classes.get(rang) && (rang == 0 || !classes.get(rang - 1))) {
+			domaine.remove(valeur);
+			return;
+		}
+		final int debut = classes.previousClearBit(rang - 1) + 1, fin = classes.nextClearBit(rang);
+		for (int r = debut; r <= fin; r++)
+			if (r != rang && domaine.actif(r)) this.statistiques.equivalentes++;
+		domaine.retraitRangs(debut, fin + 1);
+	}
+	
+	/** Retient la combinaison des décisions du conflit si elle est assez petite. */
+	private void apprentissage(final BitSet conflit, final List<Integer> decisions, final List<D> choix,
+			final int base) {
+		if (conflit.cardinality() > this.tailleMaxNogood) return;
+		final List<K> variables = new ArrayList<>();
+		final List<D> valeurs = new ArrayList<>();
+		for (int n = conflit.nextSetBit(0); n >= 0; n = conflit.nextSetBit(n + 1)) {
+			variables.add(this.cles.get(decisions.get(n - base - 1)));
+			valeurs.add(choix.get(n - base - 1));
+		}
+		this.enregistrement(new ContrainteNogood<>(variables, valeurs));
 	}
 }
@@ -5,10 +5,10 @@ import McForgeMods.Version;
 import McForgeMods.VersionIntervalle;
 import McForgeMods.depot.Depot;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Solveur de dépendance pour les paquets minecraft.
@@ -18,48 +18,255 @@ import java.util.Map;
  * variable, la valeur {@code null} correspond à un mod non installé. Tous mods utilisé pour la déclaration de
  * contrainte doit être chargé dans le solveur.
  */
-public class SolveurPaquet extends Solveur<String, Version> {
+public class SolveurPaquet extends Solveur<String, Version> implements Resolveur {
 	
-	final Depot depot;
+	final Depot   depot;
+	/** Version de minecraft de l'installation: seules les versions compatibles des mods sont chargées. */
+	final Version minecraft;
+	
+	/** Mods dont des versions déclarent un conflit, par mod visé pas encore chargé. */
+	private final Map<String, Set<String>> attente     = new HashMap<>();
+	/** Mods demandés à {@link #initialisationMod(String)}, dans l'ordre, et tous les mods chargés avec eux. */
+	private final List<String>             chargements = new ArrayList<>();
+	private final Set<String>              charges     = new HashSet<>();
 	
 	public SolveurPaquet(Depot info, Version minecraft) {
 		this.depot = info;
+		this.minecraft = minecraft;
 		this.ajoutVariable("minecraft", Collections.singleton(minecraft));
 	}
 	
+	/** @see Solveur#Solveur(Solveur) */
+	protected SolveurPaquet(final SolveurPaquet source) {
+		super(source);
+		this.depot = source.depot;
+		this.minecraft = source.minecraft;
+		source.attente.forEach((modid, sources) -> this.attente.put(modid, new LinkedHashSet<>(sources)));
+		this.chargements.addAll(source.chargements);
+		this.charges.addAll(source.charges);
+	}
+	
+	@Override
+	public SolveurPaquet copie() {
+		return new SolveurPaquet(this);
+	}
+	
+	/**
+	 * Les versions sont triées une fois pour toutes: {@code null} d'abord, puis de la plus récente à la plus ancienne.
+	 * Le rang d'une version dans le domaine est sa position dans cet ordre, un intervalle de versions devient un
+	 * intervalle de rangs: voir {@link #rangs(String, VersionIntervalle)}.
+	 */
+	@Override
+	public void ajoutVariable(final String modid, final Collection<Version> versions) {
+		super.ajoutVariable(modid, versions.stream().distinct()
+				.sorted(Comparator.nullsFirst(Comparator.<Version>reverseOrder())).collect(Collectors.toList()));
+		// conflits déclarés avant le chargement du mod
+		for (final String source : this.attente.getOrDefault(modid, Collections.emptySet()))
+			this.exclusion(source, modid);
+		this.attente.remove(modid);
+	}
+	
 	/**
-	 * Initialise le domaine et les contraintes sortante d'un mod.
+	 * Initialise le domaine et les contraintes sortante d'un mod, ainsi que de toutes ses dépendances.
+	 * <p>
+	 * La fermeture est construite avec une liste de travail plutôt que par récursion. Les versions dont une dépendance
+	 * vers un mod déjà chargé, comme {@code minecraft} ou {@code forge}, ne peut être satisfaite par aucune de ses
+	 * versions ne sont jamais choisies: elles sont écartées du domaine et leurs dépendances ne sont pas chargées.
 	 */
 	public synchronized void initialisationMod(final String modid) {
-		if (!domaines.containsKey(modid)) {
-			LinkedList<Version> versions = new LinkedList<>();
+		if (this.contient(modid)) return;
+		final long debut = System.nanoTime();
+		final Map<String, List<PaquetMinecraft>> fermeture = fermeture(this.depot, this.minecraft, modid,
+				this::contient, this::possible);
+		
+		this.chargements.add(modid);
+		this.charges.addAll(fermeture.keySet());
+		// tous les domaines d'abord: les tables de dépendances s'appuient sur leurs rangs
+		for (final Map.Entry<String, List<PaquetMinecraft>> mod : fermeture.entrySet()) {
+			final List<Version> versions = new ArrayList<>();
 			versions.add(null);
-			if (depot.contains(modid)) {
-				depot.getModVersions(modid).stream().map(p -> p.version).sorted(Comparator.reverseOrder())
-						.forEach(versions::addLast);
-			}
-			this.ajoutVariable(modid, versions);
-			this.marquerVariable(modid);
-			
-			if (depot.contains(modid)) for (final PaquetMinecraft paquet : depot.getModVersions(modid)) {
-				for (Map.Entry<String, VersionIntervalle> dep : paquet.requiredMods.entrySet()) {
-					final ContrainteDependance dependance = new ContrainteDependance(modid, paquet.version,
-							dep.getKey(), dep.getValue());
-					
-					this.initialisationMod(dependance.modid_dep);
-					this.ajoutContrainte(dependance);
-					this.marquerVariable(dep.getKey());
-				}
-			}
+			mod.getValue().stream().map(p -> p.version).forEach(versions::add);
+			this.ajoutVariable(mod.getKey(), versions);
+			this.marquerVariable(mod.getKey());
+		}
+		for (final Map.Entry<String, List<PaquetMinecraft>> mod : fermeture.entrySet())
+			this.contraintes(mod.getKey(), mod.getValue());
+		this.statistiques().fermeture += fermeture.size();
+		this.statistiques().phase("fermeture", debut);
+	}
+	
+	/**
+	 * Fermeture des dépendances d'un mod pas encore chargé, construite avec une liste de travail. Seules les versions
+	 * compatibles avec la version de minecraft, dont les dépendances vers les mods déjà chargés peuvent être
+	 * satisfaites, sont retenues; les dépendances des versions écartées ne sont pas parcourues.
+	 *
+	 * @param charge: {@code true} pour un mod déjà chargé par le solveur
+	 * @param possible: {@code true} si une version chargée du mod appartient à l'intervalle
+	 * @return les versions retenues de chaque mod de la fermeture, dans l'ordre de découverte.
+	 */
+	static Map<String, List<PaquetMinecraft>> fermeture(final Depot depot, final Version minecraft, final String modid,
+			final Predicate<String> charge, final BiPredicate<String, VersionIntervalle> possible) {
+		final Map<String, List<PaquetMinecraft>> fermeture = new LinkedHashMap<>();
+		final Deque<String> travail = new ArrayDeque<>();
+		travail.add(modid);
+		while (!travail.isEmpty()) {
+			final String courant = travail.poll();
+			if (charge.test(courant) || fermeture.containsKey(courant)) continue;
+			final List<PaquetMinecraft> paquets = new ArrayList<>();
+			for (final PaquetMinecraft paquet : depot.getModVersions(courant, minecraft))
+				if (paquet.requiredMods.entrySet().stream()
+						.allMatch(dep -> !charge.test(dep.getKey()) || possible.test(dep.getKey(), dep.getValue())))
+					paquets.add(paquet);
+			fermeture.put(courant, paquets);
+			for (final PaquetMinecraft paquet : paquets)
+				travail.addAll(paquet.requiredMods.keySet());
+		}
+		return fermeture;
+	}
+	
+	/** @return {@code true} si au moins une version du domaine initial du mod appartient à l'intervalle. */
+	boolean possible(final String modid, final VersionIntervalle intervalle) {
+		final int[] bornes = this.rangs(modid, intervalle);
+		return bornes[0] < bornes[1];
+	}
+	
+	/** Génère les tables de dépendances et les conflits des versions retenues d'un mod. */
+	private void contraintes(final String modid, final List<PaquetMinecraft> paquets) {
+		// intervalles requis par chaque version, regroupés par dépendance
+		final Map<String, Map<Version, VersionIntervalle>> dependances = new LinkedHashMap<>();
+		final Set<String> conflits = new LinkedHashSet<>();
+		for (final PaquetMinecraft paquet : paquets) {
+			for (Map.Entry<String, VersionIntervalle> dep : paquet.requiredMods.entrySet())
+				dependances.computeIfAbsent(dep.getKey(), k -> new HashMap<>()).put(paquet.version, dep.getValue());
+			conflits.addAll(paquet.conflits.keySet());
+		}
+		
+		for (Map.Entry<String, Map<Version, VersionIntervalle>> dep : dependances.entrySet()) {
+			this.ajoutArete(modid, dep.getKey(), false, this.table(modid, dep.getKey(), dep.getValue()));
+			this.marquerVariable(dep.getKey());
+		}
+		// un mod absent ne peut pas être en conflit: la contrainte attend son chargement
+		for (final String conflit : conflits) {
+			if (this.contient(conflit)) this.exclusion(modid, conflit);
+			else this.attente.computeIfAbsent(conflit, k -> new LinkedHashSet<>()).add(modid);
+		}
+	}
+	
+	/**
+	 * Rangs du domaine d'un mod dont les versions appartiennent à l'intervalle, sous la forme {@code [debut, fin)}.
+	 * Les versions sont triées: deux recherches dichotomiques suffisent.
+	 */
+	int[] rangs(final String modid, final VersionIntervalle intervalle) {
+		final Domaine<Version> domaine = this.domaineVariable(modid);
+		final int premier = domaine.capacite() > 0 && domaine.valeurRang(0) == null ? 1 : 0;
+		// de la plus récente à la plus ancienne: au-dessus de l'intervalle, dedans, puis en dessous
+		final int debut = dichotomie(domaine, premier, domaine.capacite(), v -> !intervalle.superieur(v));
+		final int fin = dichotomie(domaine, debut, domaine.capacite(), intervalle::inferieur);
+		return new int[]{debut, fin};
+	}
+	
+	/** Premier rang de {@code [debut, fin)} qui vérifie le prédicat, vérifié aussi par tous les rangs suivants. */
+	private static int dichotomie(final Domaine<Version> domaine, int debut, int fin, final Predicate<Version> test) {
+		while (debut < fin) {
+			final int milieu = (debut + fin) >>> 1;
+			if (test.test(domaine.valeurRang(milieu))) fin = milieu;
+			else debut = milieu + 1;
+		}
+		return debut;
+	}
+	
+	/** Compile les intervalles requis par les versions d'un mod en une table de supports de la dépendance. */
+	private ContrainteTable<String, Version> table(final String modid, final String modid_dep,
+			final Map<Version, VersionIntervalle> intervalles) {
+		final Domaine<Version> domaine = this.domaineVariable(modid);
+		final int[] debuts = new int[domaine.capacite()], fins = new int[domaine.capacite()];
+		Arrays.fill(debuts, -1);
+		for (int rang = 0; rang < domaine.capacite(); rang++) {
+			final VersionIntervalle intervalle = intervalles.get(domaine.valeurRang(rang));
+			if (intervalle == null) continue;
+			final int[] bornes = this.rangs(modid_dep, intervalle);
+			debuts[rang] = bornes[0];
+			fins[rang] = bornes[1];
+		}
+		return new ContrainteTable<>(modid, modid_dep, debuts, fins);
+	}
+	
+	/** Compile les conflits déclarés par les versions d'un mod envers un autre mod chargé. */
+	private void exclusion(final String modid, final String modid_conflit) {
+		final Domaine<Version> domaine = this.domaineVariable(modid);
+		final int[] debuts = new int[domaine.capacite()], fins = new int[domaine.capacite()];
+		Arrays.fill(debuts, -1);
+		for (final PaquetMinecraft paquet : this.depot.getModVersions(modid, this.minecraft)) {
+			final VersionIntervalle intervalle = paquet.conflits.get(modid_conflit);
+			// version écartée au chargement
+			final int rang = domaine.rangValeur(paquet.version);
+			if (intervalle == null || rang < 0) continue;
+			final int[] bornes = this.rangs(modid_conflit, intervalle);
+			debuts[rang] = bornes[0];
+			fins[rang] = bornes[1];
 		}
+		this.ajoutArete(modid, modid_conflit, true, new ContrainteExclusion<>(modid, modid_conflit, debuts, fins));
+		this.marquerVariable(modid_conflit);
+	}
+	
+	/**
+	 * Pose la contrainte d'une dépendance ou d'un conflit déclaré par les versions d'un mod envers un autre mod. Le
+	 * diagnostic la redéfinit pour rendre chaque arête retirable, voir {@link Diagnostic#aretes}.
+	 */
+	void ajoutArete(final String modid, final String cible, final boolean conflit,
+			final Contrainte<String, Version> contrainte) {
+		this.ajoutContrainte(contrainte);
+	}
+	
+	/**
+	 * Capture le problème dans son état actuel: les versions encore possibles de chaque mod deviennent ses demandes.
+	 *
+	 * @see Probleme#resolveur(Moteur, SelecteurVariable.Heuristique)
+	 */
+	public Probleme probleme() {
+		final Probleme probleme = new Probleme(this.minecraft);
+		probleme.chargements.addAll(this.chargements);
+		// dans l'ordre d'enregistrement des variables, que le problème rejoué reproduit
+		for (final String modid : this.cles) {
+			final Domaine<Version> domaine = super.domaineVariable(modid);
+			final List<Version> versions = new ArrayList<>();
+			for (int rang = 0; rang < domaine.capacite(); rang++)
+				versions.add(domaine.valeurRang(rang));
+			// minecraft est déclaré par le constructeur
+			if (!this.charges.contains(modid) && !modid.equals("minecraft"))
+				probleme.declarations.put(modid, versions);
+			else for (final Version version : versions)
+				if (version != null)
+					this.depot.getModVersion(modid, version).ifPresent(probleme.depot::ajoutModVersion);
+			if (domaine.size() < domaine.capacite())
+				probleme.demandes.put(modid, domaine.stream().collect(Collectors.toCollection(LinkedHashSet::new)));
+		}
+		return probleme;
 	}
 	
 	@Override
 	public Domaine<Version> domaineVariable(final String id) {
-		if (!domaines.containsKey(id)) this.initialisationMod(id);
+		if (!this.contient(id)) this.initialisationMod(id);
 		return super.domaineVariable(id);
 	}
 	
+	@Override
+	public void restriction(final String modid, final Predicate<Version> acceptable) {
+		this.domaineVariable(modid).removeIf(acceptable.negate());
+	}
+	
+	@Override
+	public Version solution(final String modid) {
+		final Domaine<Version> domaine = this.domaineVariable(modid);
+		return domaine.size() == 1 ? domaine.get(0) : null;
+	}
+	
+	@Override
+	public Set<String> echecs() {
+		return this.variables().stream().filter(id -> this.domaineVariable(id).size() == 0)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+	
 	// -+-+-+-+-+-+-+-+-+-+
 	
 	public void init(Map<String, VersionIntervalle> demandes) {
@@ -67,7 +274,6 @@ public class SolveurPaquet extends Solveur<String, Version> {
 			this.initialisationMod(modid);
 			final VersionIntervalle intervalle = demandes.get(modid);
 			this.domaineVariable(modid).removeIf(version -> !intervalle.contains(version));
-			this.domaineVariable(modid).push();
 		}
 	}
 }
@@ -0,0 +1,261 @@
+package McForgeMods.solveur;
+
+import McForgeMods.PaquetMinecraft;
+import McForgeMods.Version;
+import McForgeMods.VersionIntervalle;
+import McForgeMods.depot.Depot;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Résolution des dépendances par encodage en clauses pour le {@link SolveurSAT}.
+ * <p>
+ * Chaque version d'un mod chargé est une variable booléenne. Un mod a au plus une version installée, une version
+ * installée implique une des versions compatibles de chacune de ses dépendances, et exclut les versions de ses
+ * conflits. Seuls les mods atteignables depuis les mods chargés sont encodés.
+ * <p>
+ * Les décisions suivent les besoins: tant qu'une version installée ou une demande n'est pas satisfaite, la version la
+ * plus récente encore possible est choisie. Les autres variables sont ensuite fixées à faux, aucun mod inutile n'est
+ * installé.
+ */
+public class SolveurPaquetSAT extends SolveurSAT implements Resolveur {
+	/** Taille à partir de laquelle la contrainte "au plus une version" utilise des variables auxiliaires. */
+	private static final int LIMITE_PAIRES = 6;
+	
+	final Depot   depot;
+	/** Version de minecraft de l'installation: seules les versions compatibles des mods sont encodées. */
+	final Version minecraft;
+	
+	/** Variable de chaque version d'un mod, de la plus récente à la plus ancienne. */
+	private final Map<String, LinkedHashMap<Version, Integer>>             variables = new LinkedHashMap<>();
+	/** Conflits déclarés contre un mod pas encore chargé: variable de la version en conflit et versions visées. */
+	private final Map<String, List<Map.Entry<Integer, VersionIntervalle>>> attente   = new HashMap<>();
+	/**
+	 * Besoins dans l'ordre de création: la variable de la version qui en est à l'origine ({@code -1} pour une demande)
+	 * suivie des littéraux qui le satisfont, du préféré au moins bon.
+	 */
+	private final ArrayList<int[]>                                         besoins   = new ArrayList<>();
+	/** Indices des besoins de chaque variable de version, activés quand la version est installée. */
+	private       int[][]                                                  origines  = new int[16][];
+	/**
+	 * Les besoins avant ce pointeur sont inactifs ou satisfaits: {@link #choix()} reprend ici. Il recule quand un
+	 * besoin antérieur s'active et retrouve au retour en arrière sa valeur du niveau rétabli.
+	 */
+	private       int                                                      pointeur  = 0;
+	/** Valeur du {@link #pointeur} lors de la décision prise à chaque niveau. */
+	private       int[]                                                    pointeurs = new int[16];
+	
+	public SolveurPaquetSAT(Depot info, Version minecraft) {
+		this.depot = info;
+		this.minecraft = minecraft;
+		this.ajoutVariable("minecraft", Collections.singleton(minecraft));
+	}
+	
+	@Override
+	public void ajoutVariable(final String modid, final Collection<Version> versions) {
+		assert !this.variables.containsKey(modid);
+		this.declaration(modid, versions);
+		if (!versions.contains(null)) this.restriction(modid, Objects::nonNull);
+	}
+	
+	/** Crée les variables des versions d'un mod et la contrainte "au plus une version". */
+	private void declaration(final String modid, final Collection<Version> versions) {
+		final LinkedHashMap<Version, Integer> variables = new LinkedHashMap<>();
+		for (final Version version : versions)
+			if (version != null) variables.put(version, this.nouvelleVariable());
+		this.variables.put(modid, variables);
+		this.auPlusUn(variables.values().stream().mapToInt(Integer::intValue).toArray());
+		
+		for (final Map.Entry<Integer, VersionIntervalle> conflit : this.attente
+				.getOrDefault(modid, Collections.emptyList()))
+			this.conflit(conflit.getKey(), modid, conflit.getValue());
+		this.attente.remove(modid);
+	}
+	
+	/** Encodage par paires pour les petits mods, par compteur séquentiel au-delà. */
+	private void auPlusUn(final int[] variables) {
+		if (variables.length <= LIMITE_PAIRES) {
+			for (int i = 0; i < variables.length; i++)
+				for (int j = i + 1; j < variables.length; j++)
+					this.ajoutClause(negatif(variables[i]), negatif(variables[j]));
+			return;
+		}
+		// s_i est vrai si une des i premières versions est choisie.
+		int precedent = this.nouvelleVariable();
+		this.ajoutClause(negatif(variables[0]), positif(precedent));
+		for (int i = 1; i < variables.length - 1; i++) {
+			final int compteur = this.nouvelleVariable();
+			this.ajoutClause(negatif(variables[i]), positif(compteur));
+			this.ajoutClause(negatif(precedent), positif(compteur));
+			this.ajoutClause(negatif(variables[i]), negatif(precedent));
+			precedent = compteur;
+		}
+		this.ajoutClause(negatif(variables[variables.length - 1]), negatif(precedent));
+	}
+	
+	/**
+	 * Encode un mod et la fermeture de ses dépendances, avec la même liste de travail et le même élagage que
+	 * {@link SolveurPaquet#initialisationMod(String)}: les versions écartées n'ont pas de variable.
+	 */
+	@Override
+	public synchronized void initialisationMod(final String modid) {
+		if (this.variables.containsKey(modid)) return;
+		final Map<String, List<PaquetMinecraft>> fermeture = SolveurPaquet.fermeture(this.depot, this.minecraft, modid,
+				this.variables::containsKey, this::possible);
+		// toutes les variables d'abord: les besoins s'appuient sur les versions des dépendances
+		for (final Map.Entry<String, List<PaquetMinecraft>> mod : fermeture.entrySet())
+			this.declaration(mod.getKey(), mod.getValue().stream().map(p -> p.version).sorted(Comparator.reverseOrder())
+					.collect(Collectors.toList()));
+		
+		for (final Map.Entry<String, List<PaquetMinecraft>> mod : fermeture.entrySet()) {
+			for (final PaquetMinecraft paquet : mod.getValue()) {
+				final int variable = this.variables.get(mod.getKey()).get(paquet.version);
+				for (final Map.Entry<String, VersionIntervalle> dep : paquet.requiredMods.entrySet())
+					this.dependance(variable, dep.getKey(), dep.getValue());
+				for (final Map.Entry<String, VersionIntervalle> conflit : paquet.conflits.entrySet()) {
+					if (this.variables.containsKey(conflit.getKey()))
+						this.conflit(variable, conflit.getKey(), conflit.getValue());
+					else this.attente.computeIfAbsent(conflit.getKey(), k -> new ArrayList<>())
+							.add(new AbstractMap.SimpleEntry<>(variable, conflit.getValue()));
+				}
+			}
+		}
+	}
+	
+	/** @return {@code true} si au moins une version encodée du mod appartient à l'intervalle. */
+	private boolean possible(final String modid, final VersionIntervalle intervalle) {
+		return this.variables.get(modid).keySet().stream().anyMatch(intervalle::contains);
+	}
+	
+	/** La version installée implique une des versions compatibles de la dépendance. */
+	private void dependance(final int variable, final String modid_dep, final VersionIntervalle intervalle) {
+		final int[] besoin = new int[this.variables.get(modid_dep).size() + 1];
+		int taille = 0;
+		besoin[taille++] = variable;
+		for (final Map.Entry<Version, Integer> version : this.variables.get(modid_dep).entrySet())
+			if (intervalle.contains(version.getKey())) besoin[taille++] = positif(version.getValue());
+		this.besoin(Arrays.copyOf(besoin, taille));
+	}
+	
+	/** La version installée exclut les versions en conflit de l'autre mod. */
+	private void conflit(final int variable, final String modid_conflit, final VersionIntervalle intervalle) {
+		for (final Map.Entry<Version, Integer> version : this.variables.get(modid_conflit).entrySet())
+			if (intervalle.contains(version.getKey()))
+				this.ajoutClause(negatif(variable), negatif(version.getValue()));
+	}
+	
+	/** Enregistre un besoin et la clause correspondante. */
+	private void besoin(final int[] besoin) {
+		final int[] clause = besoin.clone();
+		if (besoin[0] >= 0) clause[0] = negatif(besoin[0]);
+		this.ajoutClause(besoin[0] >= 0 ? clause : Arrays.copyOfRange(clause, 1, clause.length));
+		if (besoin.length == 1) return;
+		if (besoin[0] >= 0) {
+			if (besoin[0] >= this.origines.length)
+				this.origines = Arrays.copyOf(this.origines, Math.max(2 * this.origines.length, besoin[0] + 1));
+			final int[] indices = this.origines[besoin[0]];
+			final int taille = indices == null ? 0 : indices.length;
+			this.origines[besoin[0]] = indices == null ? new int[1] : Arrays.copyOf(indices, taille + 1);
+			this.origines[besoin[0]][taille] = this.besoins.size();
+		}
+		this.besoins.add(besoin);
+	}
+	
+	@Override
+	public void restriction(final String modid, final Predicate<Version> acceptable) {
+		this.initialisationMod(modid);
+		final int[] besoin = new int[this.variables.get(modid).size() + 1];
+		int taille = 0;
+		besoin[taille++] = -1;
+		for (final Map.Entry<Version, Integer> version : this.variables.get(modid).entrySet()) {
+			if (acceptable.test(version.getKey())) besoin[taille++] = positif(version.getValue());
+			else this.ajoutClause(negatif(version.getValue()));
+		}
+		if (!acceptable.test(null)) this.besoin(Arrays.copyOf(besoin, taille));
+	}
+	
+	/**
+	 * Satisfait en priorité le premier besoin actif, avec la meilleure version encore possible. Le parcours reprend au
+	 * {@link #pointeur}: les besoins inactifs ou satisfaits le restent jusqu'à l'activation ou au retour en arrière.
+	 */
+	@Override
+	protected int choix() {
+		int litteral = -1;
+		for (; this.pointeur < this.besoins.size(); this.pointeur++) {
+			final int[] besoin = this.besoins.get(this.pointeur);
+			if (besoin[0] >= 0 && !this.vrai(positif(besoin[0]))) continue;
+			int libre = -1;
+			for (int k = 1; k < besoin.length; k++) {
+				if (this.vrai(besoin[k])) {
+					libre = -1;
+					break;
+				}
+				if (libre < 0 && !this.faux(besoin[k])) libre = besoin[k];
+			}
+			if (libre >= 0) {
+				litteral = libre;
+				break;
+			}
+		}
+		if (litteral < 0) litteral = super.choix();
+		if (this.niveau() == this.pointeurs.length) this.pointeurs = Arrays.copyOf(this.pointeurs, 2 * this.niveau());
+		this.pointeurs[this.niveau()] = this.pointeur;
+		return litteral;
+	}
+	
+	/** Une version installée active ses besoins: le pointeur recule jusqu'au premier d'entre eux. */
+	@Override
+	protected void affecte(final int litteral) {
+		final int variable = litteral >> 1;
+		if (litteral == positif(variable) && variable < this.origines.length && this.origines[variable] != null)
+			this.pointeur = Math.min(this.pointeur, this.origines[variable][0]);
+	}
+	
+	@Override
+	protected void retourne(final int cible) {
+		this.pointeur = Math.min(this.pointeur, this.pointeurs[cible]);
+	}
+	
+	/** Les variables restantes ne sont pas installées. */
+	@Override
+	protected boolean phase(final int variable) {
+		return false;
+	}
+	
+	@Override
+	public Set<String> variables() {
+		return Collections.unmodifiableSet(this.variables.keySet());
+	}
+	
+	/** Seuls les décisions, les conflits comme retours en arrière et les mods encodés sont comptés. */
+	@Override
+	public Statistiques statistiques() {
+		final Statistiques statistiques = new Statistiques();
+		statistiques.decisions = this.decisions;
+		statistiques.retours = this.conflits;
+		statistiques.fermeture = this.variables.size();
+		return statistiques;
+	}
+	
+	@Override
+	public Map<String, Version> solutionPartielle() {
+		if (!this.interrompue()) return Collections.emptyMap();
+		final Map<String, Version> partielle = new LinkedHashMap<>();
+		for (final Map.Entry<String, LinkedHashMap<Version, Integer>> mod : this.variables.entrySet()) {
+			if (mod.getValue().values().stream().allMatch(variable -> this.faux(positif(variable))))
+				partielle.put(mod.getKey(), null);
+			else for (final Map.Entry<Version, Integer> version : mod.getValue().entrySet())
+				if (this.vrai(positif(version.getValue()))) partielle.put(mod.getKey(), version.getKey());
+		}
+		return partielle;
+	}
+	
+	@Override
+	public Version solution(final String modid) {
+		for (final Map.Entry<Version, Integer> version : this.variables.get(modid).entrySet())
+			if (this.vrai(positif(version.getValue()))) return version.getKey();
+		return null;
+	}
+}
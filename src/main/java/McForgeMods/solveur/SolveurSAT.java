@@ -0,0 +1,448 @@
+package McForgeMods.solveur;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Solveur SAT à apprentissage de clauses (<i>CDCL</i>).
+ * <p>
+ * Les variables sont des indices denses, un littéral vaut {@code 2 * variable} pour la variable vraie et {@code 2 *
+ * variable + 1} pour sa négation. Chaque clause est surveillée par ses deux premiers littéraux: seules les clauses
+ * dont un littéral surveillé devient faux sont visitées lors de la propagation. Un conflit est analysé jusqu'au premier
+ * point d'implication unique, la clause apprise est conservée et la recherche revient au niveau où elle devient
+ * unitaire.
+ * <p>
+ * Les variables sont choisies selon leur activité (<i>VSIDS</i>): les variables des conflits récents sont
+ * prioritaires. La recherche redémarre selon la suite de Luby, la dernière valeur de chaque variable est conservée
+ * d'un redémarrage à l'autre.
+ */
+public class SolveurSAT {
+	private static final byte   INDEFINI     = 0;
+	private static final byte   VRAI         = 1;
+	private static final byte   FAUX         = -1;
+	/** Nombre de conflits entre deux redémarrages, multiplié par la suite de Luby. */
+	private static final int    UNITE        = 100;
+	private static final double DECROISSANCE = 0.95;
+	
+	private final ArrayList<int[]> clauses        = new ArrayList<>();
+	/** Valeur de chaque littéral. */
+	private       byte[]           valeurs        = new byte[32];
+	/** Niveau de décision de chaque variable affectée. */
+	private       int[]            niveaux        = new int[16];
+	/** Clause ayant imposé la valeur de chaque variable, {@code -1} pour une décision. */
+	private       int[]            raisons        = new int[16];
+	/** Dernière valeur de chaque variable. */
+	private       boolean[]        phases         = new boolean[16];
+	private       boolean[]        vus            = new boolean[16];
+	private       double[]         activites      = new double[16];
+	private       double           increment      = 1;
+	/** Clauses surveillées par chaque littéral. */
+	private       int[][]          surveillances  = new int[32][];
+	private       int[]            nbSurveillance = new int[32];
+	/** Littéraux affectés, dans l'ordre. */
+	private       int[]            trace          = new int[16];
+	private       int              tailleTrace    = 0;
+	/** Position dans la {@link #trace} du prochain littéral à propager. */
+	private       int              propages       = 0;
+	/** Taille de la trace à l'ouverture de chaque niveau. */
+	private       int[]            debuts         = new int[16];
+	private       int              niveau         = 0;
+	/** Tas des variables selon leur activité. */
+	private       int[]            tas            = new int[16];
+	private       int[]            positions      = new int[16];
+	private       int              tailleTas      = 0;
+	private       int              nbVariables    = 0;
+	/** Une clause vide a été déduite. */
+	private       boolean          insatisfiable  = false;
+	/** Limites de chaque résolution, les conflits tiennent lieu de retours en arrière. */
+	private       Budget           budget         = Budget.ILLIMITE;
+	/** La dernière résolution a épuisé son budget. */
+	private       boolean          interrompue    = false;
+	
+	public long decisions = 0;
+	public long conflits  = 0;
+	
+	public static int positif(final int variable) {
+		return 2 * variable;
+	}
+	
+	public static int negatif(final int variable) {
+		return 2 * variable + 1;
+	}
+	
+	public int nbVariables() {
+		return this.nbVariables;
+	}
+	
+	/** Crée une nouvelle variable et renvoit son indice. */
+	public int nouvelleVariable() {
+		final int variable = this.nbVariables++;
+		if (variable == this.niveaux.length) {
+			final int capacite = this.niveaux.length * 2;
+			this.valeurs = Arrays.copyOf(this.valeurs, 2 * capacite);
+			this.surveillances = Arrays.copyOf(this.surveillances, 2 * capacite);
+			this.nbSurveillance = Arrays.copyOf(this.nbSurveillance, 2 * capacite);
+			this.niveaux = Arrays.copyOf(this.niveaux, capacite);
+			this.raisons = Arrays.copyOf(this.raisons, capacite);
+			this.phases = Arrays.copyOf(this.phases, capacite);
+			this.vus = Arrays.copyOf(this.vus, capacite);
+			this.activites = Arrays.copyOf(this.activites, capacite);
+			this.trace = Arrays.copyOf(this.trace, capacite);
+			this.debuts = Arrays.copyOf(this.debuts, capacite + 1);
+			this.tas = Arrays.copyOf(this.tas, capacite);
+			this.positions = Arrays.copyOf(this.positions, capacite);
+		}
+		this.surveillances[positif(variable)] = new int[4];
+		this.surveillances[negatif(variable)] = new int[4];
+		this.raisons[variable] = -1;
+		this.insertion(variable);
+		return variable;
+	}
+	
+	/**
+	 * Ajoute une clause au problème. La recherche en cours est abandonnée.
+	 *
+	 * @return {@code false} si le problème est devenu insatisfiable.
+	 */
+	public boolean ajoutClause(final int... litteraux) {
+		this.retour(0);
+		if (this.insatisfiable) return false;
+		
+		final int[] clause = Arrays.stream(litteraux).sorted().distinct().toArray();
+		int taille = 0;
+		for (int i = 0; i < clause.length; i++) {
+			// tautologie ou clause déjà satisfaite
+			if (this.valeurs[clause[i]] == VRAI || (i > 0 && clause[i] == (clause[i - 1] ^ 1))) return true;
+			if (this.valeurs[clause[i]] == INDEFINI) clause[taille++] = clause[i];
+		}
+		
+		if (taille == 0) this.insatisfiable = true;
+		else if (taille == 1) this.affectation(clause[0], -1);
+		else this.enregistrement(Arrays.copyOf(clause, taille));
+		return !this.insatisfiable;
+	}
+	
+	/** Enregistre une clause et surveille ses deux premiers littéraux. */
+	private int enregistrement(final int[] clause) {
+		final int indice = this.clauses.size();
+		this.clauses.add(clause);
+		this.surveiller(clause[0], indice);
+		this.surveiller(clause[1], indice);
+		return indice;
+	}
+	
+	private void surveiller(final int litteral, final int clause) {
+		if (this.nbSurveillance[litteral] == this.surveillances[litteral].length)
+			this.surveillances[litteral] = Arrays
+					.copyOf(this.surveillances[litteral], 2 * this.nbSurveillance[litteral]);
+		this.surveillances[litteral][this.nbSurveillance[litteral]++] = clause;
+	}
+	
+	/** @return {@code true} si le littéral est vrai dans l'affectation actuelle. */
+	public boolean vrai(final int litteral) {
+		return this.valeurs[litteral] == VRAI;
+	}
+	
+	/** @return {@code true} si le littéral est faux dans l'affectation actuelle. */
+	public boolean faux(final int litteral) {
+		return this.valeurs[litteral] == FAUX;
+	}
+	
+	private void affectation(final int litteral, final int raison) {
+		final int variable = litteral >> 1;
+		this.valeurs[litteral] = VRAI;
+		this.valeurs[litteral ^ 1] = FAUX;
+		this.niveaux[variable] = this.niveau;
+		this.raisons[variable] = raison;
+		this.trace[this.tailleTrace++] = litteral;
+		this.affecte(litteral);
+	}
+	
+	/** Appelée après chaque affectation d'un littéral, par décision ou par propagation. */
+	protected void affecte(final int litteral) {
+	}
+	
+	/**
+	 * Propage les littéraux affectés.
+	 *
+	 * @return l'indice d'une clause dont tous les littéraux sont faux, ou {@code -1}.
+	 */
+	private int propagation() {
+		while (this.propages < this.tailleTrace) {
+			final int faux = this.trace[this.propages++] ^ 1;
+			final int[] liste = this.surveillances[faux];
+			final int n = this.nbSurveillance[faux];
+			int j = 0;
+			for (int i = 0; i < n; i++) {
+				final int indice = liste[i];
+				final int[] clause = this.clauses.get(indice);
+				// le littéral faux est placé en seconde position
+				if (clause[0] == faux) {
+					clause[0] = clause[1];
+					clause[1] = faux;
+				}
+				if (this.valeurs[clause[0]] != VRAI) {
+					// recherche d'un autre littéral à surveiller
+					int k = 2;
+					while (k < clause.length && this.valeurs[clause[k]] == FAUX) k++;
+					if (k < clause.length) {
+						clause[1] = clause[k];
+						clause[k] = faux;
+						this.surveiller(clause[1], indice);
+						continue;
+					}
+					if (this.valeurs[clause[0]] == FAUX) {
+						while (i < n) liste[j++] = liste[i++];
+						this.nbSurveillance[faux] = j;
+						this.propages = this.tailleTrace;
+						return indice;
+					}
+					this.affectation(clause[0], indice);
+				}
+				liste[j++] = indice;
+			}
+			this.nbSurveillance[faux] = j;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Analyse un conflit jusqu'au premier point d'implication unique.
+	 *
+	 * @return la clause apprise, son premier littéral est le seul du niveau actuel et le second celui du plus haut
+	 * niveau restant.
+	 */
+	private int[] analyse(int conflit) {
+		final ArrayList<Integer> apprise = new ArrayList<>();
+		apprise.add(-1);
+		int compteur = 0;
+		int litteral = -1;
+		int position = this.tailleTrace - 1;
+		do {
+			final int[] clause = this.clauses.get(conflit);
+			// le premier littéral d'une raison est celui qu'elle a imposé
+			for (int k = litteral < 0 ? 0 : 1; k < clause.length; k++) {
+				final int variable = clause[k] >> 1;
+				if (!this.vus[variable] && this.niveaux[variable] > 0) {
+					this.vus[variable] = true;
+					this.augmentation(variable);
+					if (this.niveaux[variable] >= this.niveau) compteur++;
+					else apprise.add(clause[k]);
+				}
+			}
+			while (!this.vus[this.trace[position] >> 1]) position--;
+			litteral = this.trace[position--];
+			conflit = this.raisons[litteral >> 1];
+			this.vus[litteral >> 1] = false;
+			compteur--;
+		} while (compteur > 0);
+		apprise.set(0, litteral ^ 1);
+		
+		// suppression des littéraux impliqués par les autres littéraux de la clause
+		final int[] resultat = new int[apprise.size()];
+		int taille = 0;
+		resultat[taille++] = apprise.get(0);
+		for (int i = 1; i < apprise.size(); i++)
+			if (!this.redondant(apprise.get(i))) resultat[taille++] = apprise.get(i);
+		for (int i = 1; i < apprise.size(); i++)
+			this.vus[apprise.get(i) >> 1] = false;
+		
+		// le littéral de plus haut niveau est surveillé avec le littéral affirmé
+		for (int i = 2; i < taille; i++)
+			if (this.niveaux[resultat[i] >> 1] > this.niveaux[resultat[1] >> 1]) {
+				final int l = resultat[1];
+				resultat[1] = resultat[i];
+				resultat[i] = l;
+			}
+		return Arrays.copyOf(resultat, taille);
+	}
+	
+	/** Un littéral est redondant si sa raison ne contient que des littéraux de la clause apprise. */
+	private boolean redondant(final int litteral) {
+		final int raison = this.raisons[litteral >> 1];
+		if (raison < 0) return false;
+		final int[] clause = this.clauses.get(raison);
+		for (int k = 1; k < clause.length; k++) {
+			final int variable = clause[k] >> 1;
+			if (!this.vus[variable] && this.niveaux[variable] > 0) return false;
+		}
+		return true;
+	}
+	
+	/** Ouvre un niveau de décision et affecte le littéral. */
+	private void decision(final int litteral) {
+		this.debuts[this.niveau++] = this.tailleTrace;
+		this.decisions++;
+		this.affectation(litteral, -1);
+	}
+	
+	/** Annule toutes les affectations faites au-dessus du niveau cible. */
+	private void retour(final int cible) {
+		if (this.niveau <= cible) return;
+		final int debut = this.debuts[cible];
+		for (int i = this.tailleTrace - 1; i >= debut; i--) {
+			final int variable = this.trace[i] >> 1;
+			this.phases[variable] = this.valeurs[positif(variable)] == VRAI;
+			this.valeurs[positif(variable)] = INDEFINI;
+			this.valeurs[negatif(variable)] = INDEFINI;
+			this.raisons[variable] = -1;
+			if (this.positions[variable] < 0) this.insertion(variable);
+		}
+		this.tailleTrace = this.propages = debut;
+		this.niveau = cible;
+		this.retourne(cible);
+	}
+	
+	/** Appelée après l'annulation des affectations faites au-dessus du niveau {@code cible}. */
+	protected void retourne(final int cible) {
+	}
+	
+	/** Niveau de décision actuel, {@code 0} avant toute décision. */
+	protected int niveau() {
+		return this.niveau;
+	}
+	
+	/**
+	 * Choisit le prochain littéral à affecter: la variable libre la plus active, avec sa {@link #phase(int)}.
+	 *
+	 * @return le littéral ou {@code -1} si toutes les variables sont affectées.
+	 */
+	protected int choix() {
+		while (this.tailleTas > 0) {
+			final int variable = this.extraction();
+			if (this.valeurs[positif(variable)] == INDEFINI)
+				return this.phase(variable) ? positif(variable) : negatif(variable);
+		}
+		return -1;
+	}
+	
+	/** Valeur préférée d'une variable choisie, par défaut sa dernière valeur. */
+	protected boolean phase(final int variable) {
+		return this.phases[variable];
+	}
+	
+	/** Limite chaque résolution. */
+	public void budget(final Budget budget) {
+		this.budget = budget;
+	}
+	
+	/** @return {@code true} si la dernière résolution a épuisé son budget. */
+	public boolean interrompue() {
+		return this.interrompue;
+	}
+	
+	/**
+	 * Recherche une affectation satisfaisant toutes les clauses. En cas de succès, l'affectation est conservée jusqu'au
+	 * prochain ajout de clause. Quand le budget est épuisé, l'affectation partielle atteinte, sans conflit après
+	 * propagation, est conservée de la même façon.
+	 *
+	 * @return {@code true} si le problème est satisfiable.
+	 */
+	public boolean resolution() {
+		this.retour(0);
+		this.interrompue = false;
+		if (this.insatisfiable) return false;
+		final long debut = System.nanoTime(), decisions = this.decisions, conflits = this.conflits;
+		int redemarrage = 1;
+		long limite = luby(redemarrage) * UNITE;
+		long conflitsRedemarrage = 0;
+		
+		while (true) {
+			final int conflit = this.propagation();
+			if (conflit >= 0) {
+				this.conflits++;
+				conflitsRedemarrage++;
+				if (this.niveau == 0) {
+					this.insatisfiable = true;
+					return false;
+				}
+				final int[] apprise = this.analyse(conflit);
+				this.retour(apprise.length > 1 ? this.niveaux[apprise[1] >> 1] : 0);
+				this.affectation(apprise[0], apprise.length > 1 ? this.enregistrement(apprise) : -1);
+				this.increment /= DECROISSANCE;
+			} else if (this.budget.epuise(debut, this.decisions - decisions, this.conflits - conflits)) {
+				this.interrompue = true;
+				return false;
+			} else if (conflitsRedemarrage >= limite) {
+				this.retour(0);
+				conflitsRedemarrage = 0;
+				limite = luby(++redemarrage) * UNITE;
+			} else {
+				final int litteral = this.choix();
+				if (litteral < 0) return true;
+				this.decision(litteral);
+			}
+		}
+	}
+	
+	/** Suite de Luby: 1, 1, 2, 1, 1, 2, 4, 1, ... */
+	static long luby(int i) {
+		int k = 1;
+		while ((1L << k) - 1 < i) k++;
+		while ((1L << k) - 1 != i) {
+			i -= (1 << (k - 1)) - 1;
+			k = 1;
+			while ((1L << k) - 1 < i) k++;
+		}
+		return 1L << (k - 1);
+	}
+	
+	// -+-+-+-+-+-+-+-+-+-+ Activités
+	
+	private void augmentation(final int variable) {
+		this.activites[variable] += this.increment;
+		if (this.activites[variable] > 1e100) {
+			for (int v = 0; v < this.nbVariables; v++)
+				this.activites[v] *= 1e-100;
+			this.increment *= 1e-100;
+		}
+		if (this.positions[variable] >= 0) this.monter(this.positions[variable]);
+	}
+	
+	private void insertion(final int variable) {
+		this.placer(this.tailleTas, variable);
+		this.monter(this.tailleTas++);
+	}
+	
+	private int extraction() {
+		final int variable = this.tas[0];
+		this.positions[variable] = -1;
+		if (--this.tailleTas > 0) {
+			this.placer(0, this.tas[this.tailleTas]);
+			this.descendre(0);
+		}
+		return variable;
+	}
+	
+	private boolean avant(final int a, final int b) {
+		return this.activites[a] > this.activites[b] || (this.activites[a] == this.activites[b] && a < b);
+	}
+	
+	private void placer(final int position, final int variable) {
+		this.tas[position] = variable;
+		this.positions[variable] = position;
+	}
+	
+	private void monter(int position) {
+		final int variable = this.tas[position];
+		while (position > 0) {
+			final int parent = (position - 1) / 2;
+			if (!this.avant(variable, this.tas[parent])) break;
+			this.placer(position, this.tas[parent]);
+			position = parent;
+		}
+		this.placer(position, variable);
+	}
+	
+	private void descendre(int position) {
+		final int variable = this.tas[position];
+		while (2 * position + 1 < this.tailleTas) {
+			int enfant = 2 * position + 1;
+			if (enfant + 1 < this.tailleTas && this.avant(this.tas[enfant + 1], this.tas[enfant])) enfant++;
+			if (!this.avant(this.tas[enfant], variable)) break;
+			this.placer(position, this.tas[enfant]);
+			position = enfant;
+		}
+		this.placer(position, variable);
+	}
+}
@@ -0,0 +1,109 @@
+package McForgeMods.solveur;
+
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Compteurs d'activité d'un solveur, cumulés sur toutes ses résolutions.
+ * <p>
+ * Les compteurs simples sont toujours tenus. Le {@link #detail} ajoute le nombre de révisions et leur durée par classe
+ * de contrainte: chaque révision est alors chronométrée, ce qui ralentit un peu la propagation.
+ */
+public class Statistiques {
+	/** Décisions prises par la recherche. */
+	public long    decisions     = 0;
+	/** Retours en arrière, après un échec ou une borne d'optimisation. */
+	public long    retours       = 0;
+	/** Révisions de contraintes par la propagation. */
+	public long    revisions     = 0;
+	/** Valeurs réfutées avec une valeur équivalente, sans être essayées. */
+	public long    equivalentes  = 0;
+	/** Domaines vidés par la propagation. */
+	public long    echecs        = 0;
+	/** Plus grand nombre de décisions simultanées. */
+	public long    profondeurMax = 0;
+	/** Variables chargées avec leurs dépendances, voir {@link SolveurPaquet#initialisationMod(String)}. */
+	public long    fermeture     = 0;
+	/** Chronomètre les révisions de chaque classe de contrainte. */
+	public boolean detail        = false;
+	
+	/** Nombre de révisions et durée cumulée en nanosecondes, par classe de contrainte. */
+	private final Map<String, long[]> contraintes = new TreeMap<>();
+	/** Durée cumulée de chaque phase en nanosecondes, dans l'ordre de première apparition. */
+	private final Map<String, Long>   phases      = new LinkedHashMap<>();
+	
+	/** Enregistre une révision chronométrée. */
+	void revision(final Contrainte<?, ?> contrainte, final long duree) {
+		final long[] compteurs = this.contraintes
+				.computeIfAbsent(contrainte.getClass().getSimpleName(), k -> new long[2]);
+		compteurs[0]++;
+		compteurs[1] += duree;
+	}
+	
+	/** Ajoute la durée d'une phase, commencée à {@code debut} selon {@link System#nanoTime()}. */
+	public void phase(final String nom, final long debut) {
+		this.phases.merge(nom, System.nanoTime() - debut, Long::sum);
+	}
+	
+	/** Cumule les compteurs d'un autre solveur, par exemple d'une copie. */
+	public void ajout(final Statistiques autres) {
+		this.decisions += autres.decisions;
+		this.retours += autres.retours;
+		this.revisions += autres.revisions;
+		this.equivalentes += autres.equivalentes;
+		this.echecs += autres.echecs;
+		this.profondeurMax = Math.max(this.profondeurMax, autres.profondeurMax);
+		this.fermeture += autres.fermeture;
+		autres.contraintes.forEach((classe, compteurs) -> {
+			final long[] cumul = this.contraintes.computeIfAbsent(classe, k -> new long[2]);
+			cumul[0] += compteurs[0];
+			cumul[1] += compteurs[1];
+		});
+		autres.phases.forEach((nom, duree) -> this.phases.merge(nom, duree, Long::sum));
+	}
+	
+	/** Version lisible par une machine, les durées en nanosecondes. */
+	public JSONObject json() {
+		final JSONObject json = new JSONObject();
+		json.put("decisions", this.decisions);
+		json.put("retours", this.retours);
+		json.put("revisions", this.revisions);
+		json.put("equivalentes", this.equivalentes);
+		json.put("echecs", this.echecs);
+		json.put("profondeurMax", this.profondeurMax);
+		json.put("fermeture", this.fermeture);
+		final JSONObject contraintes = new JSONObject();
+		this.contraintes.forEach((classe, compteurs) -> contraintes
+				.put(classe, new JSONObject().put("revisions", compteurs[0]).put("duree", compteurs[1])));
+		json.put("contraintes", contraintes);
+		final JSONObject phases = new JSONObject();
+		this.phases.forEach(phases::put);
+		json.put("phases", phases);
+		return json;
+	}
+	
+	/** Rapport lisible, une ligne par compteur, les durées en millisecondes. */
+	public String rapport() {
+		final StringJoiner rapport = new StringJoiner(System.lineSeparator());
+		rapport.add("décisions: " + this.decisions);
+		rapport.add("retours: " + this.retours);
+		rapport.add("révisions: " + this.revisions);
+		rapport.add("valeurs équivalentes écartées: " + this.equivalentes);
+		rapport.add("domaines vidés: " + this.echecs);
+		rapport.add("profondeur maximale: " + this.profondeurMax);
+		rapport.add("fermeture: " + this.fermeture + " mods");
+		this.contraintes.forEach((classe, compteurs) -> rapport
+				.add(String.format("\t%s: %d révisions, %.1f ms", classe, compteurs[0], compteurs[1] / 1e6)));
+		this.phases.forEach((nom, duree) -> rapport.add(String.format("%s: %.1f ms", nom, duree / 1e6)));
+		return rapport.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return "Statistiques" + this.json();
+	}
+}
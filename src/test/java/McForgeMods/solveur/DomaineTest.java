@@ -5,6 +5,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,8 +31,7 @@ class DomaineTest {
 		assertFalse(domaine.remove(new Version(1, 13, 78)));
 		assertTrue(domaine.remove(new Version(3, 1, 0)));
 		assertEquals(5, domaine.size());
-		assertEquals(new Version(3, 0, 2), domaine.get(0));
-		assertEquals(new Version(2, 6, 7), domaine.get(4));
+		assertEquals(new Version(3, 0, 2), domaine.premier());
 		assertFalse(domaine.contains(new Version(3, 1, 0)));
 		assertTrue(domaine.contains(new Version(2, 7, 0)));
 	}
@@ -44,6 +45,16 @@ class DomaineTest {
 		assertFalse(domaine.contains(new Version(3, 0, 2)));
 	}
 	
+	@Test
+	void testRemoveIf() {
+		assertTrue(domaine.removeIf(v -> v.get(0) == 3));
+		assertEquals(3, domaine.size());
+		assertEquals(new Version(2, 7, 0), domaine.premier());
+		assertTrue(domaine.contains(new Version(4, 6, 7)));
+		assertFalse(domaine.contains(new Version(3, 0, 1)));
+		assertFalse(domaine.removeIf(v -> v.get(0) == 3));
+	}
+	
 	@Test
 	void testPushPop() {
 		domaine.push();
@@ -51,5 +62,32 @@ class DomaineTest {
 		domaine.pop();
 		assertEquals(6, domaine.size());
 		assertTrue(domaine.contains(new Version(3, 1, 0)));
+		
+		domaine.push();
+		domaine.reduction(new Version(2, 6, 7));
+		domaine.pop();
+		assertEquals(6, domaine.size());
+		assertEquals(new Version(3, 1, 0), domaine.premier());
+	}
+	
+	@Test
+	void testSuivant() {
+		final Domaine<Integer> grand = new Domaine<>(IntStream.range(0, 200).boxed().collect(Collectors.toList()));
+		assertEquals(0, grand.suivant(0, 200));
+		assertEquals(130, grand.suivant(130, 131));
+		assertEquals(-1, grand.suivant(70, 70));
+		
+		grand.push();
+		grand.removeIf(v -> v < 150 && v != 64);
+		assertEquals(64, grand.suivant(1, 200));
+		assertEquals(150, grand.suivant(65, 200));
+		assertEquals(-1, grand.suivant(65, 150));
+		assertFalse(grand.actif(63));
+		grand.pop();
+		assertEquals(63, grand.suivant(63, 200));
+		
+		grand.reduction(199);
+		assertEquals(199, grand.suivant(0, 200));
+		assertEquals(-1, grand.suivant(0, 199));
 	}
-}
\ No newline at end of file
+}
@@ -7,9 +7,19 @@ import McForgeMods.depot.Depot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -108,6 +118,32 @@ class SolveurPaquetTest {
 		assertEquals(2, solveur.domaineVariable("modext2").size());
 	}
 	
+	@Test
+	void tableDependances() {
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("modext1");
+		solveur.initialisationMod("modext2");
+		assertTrue(solveur.coherence());
+		// une table par mod et par dépendance, quel que soit le nombre de versions
+		assertEquals(6, solveur.contraintes.stream().filter(c -> c instanceof ContrainteTable).count());
+		
+		// les supports résiduels trouvés dans une branche restent valables après le retour
+		solveur.historique.nouveauNiveau();
+		solveur.domaineVariable("core").removeIf(v -> v != null && v.get(0) != 2);
+		assertTrue(solveur.coherence());
+		assertEquals(2, solveur.domaineVariable("modcore").size());
+		assertTrue(solveur.domaineVariable("modcore").contains(new Version(2, 0, 0)));
+		solveur.historique.retour(0);
+		solveur.historique.nouveauNiveau();
+		solveur.domaineVariable("core").removeIf(v -> v != null && !v.equals(new Version(1, 0, 0)));
+		assertTrue(solveur.coherence());
+		assertEquals(2, solveur.domaineVariable("modcore").size());
+		assertTrue(solveur.domaineVariable("modcore").contains(new Version(1, 0, 0)));
+		assertEquals(2, solveur.domaineVariable("modext1").size());
+		assertEquals(1, solveur.domaineVariable("modext2").size());
+	}
+	
 	@Test
 	void resolutionModCore() {
 		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
@@ -145,4 +181,432 @@ class SolveurPaquetTest {
 				new VersionIntervalle(new Version(1, 0, 0))));
 		assertFalse(solveur.resolution());
 	}
+	
+	@Test
+	void conflitDepot() {
+		final PaquetMinecraft optifine = new PaquetMinecraft("optifine", new Version(1, 0, 0));
+		optifine.ajoutConflit("core", VersionIntervalle.read("[2.0,3)"));
+		depot.ajoutModVersion(optifine);
+		
+		// le conflit est compilé au chargement de core, après optifine
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("optifine");
+		assertFalse(solveur.contient("core"));
+		solveur.init(Map.of("modcore", new VersionIntervalle(new Version(2, 0, 0))));
+		assertTrue(solveur.contraintes.stream().anyMatch(c -> c instanceof ContrainteExclusion));
+		assertTrue(solveur.resolution());
+		assertNull(solveur.solution("optifine"));
+		
+		solveur.historique.retour(0);
+		solveur.restriction("optifine", Objects::nonNull);
+		assertFalse(solveur.resolution());
+	}
+	
+	@Test
+	void fermeture() {
+		final PaquetMinecraft ancien = new PaquetMinecraft("jei", new Version(4, 0, 0));
+		ancien.ajoutModRequis("minecraft", VersionIntervalle.read("[1.7,1.8)"));
+		ancien.ajoutModRequis("codechicken", VersionIntervalle.read("[1.0,2)"));
+		final PaquetMinecraft recent = new PaquetMinecraft("jei", new Version(4, 16, 0));
+		recent.ajoutModRequis("minecraft", mc_1_12);
+		recent.ajoutModRequis("forge", VersionIntervalle.read("[14.23,14.24)"));
+		depot.ajoutModVersion(ancien);
+		depot.ajoutModVersion(recent);
+		// chaîne de dépendances trop profonde pour un chargement récursif
+		for (int i = 0; i < 20000; i++) {
+			final PaquetMinecraft maillon = new PaquetMinecraft("maillon" + i, new Version(1, 0, 0));
+			maillon.ajoutModRequis("maillon" + (i + 1), VersionIntervalle.ouvert());
+			depot.ajoutModVersion(maillon);
+		}
+		depot.ajoutModVersion(new PaquetMinecraft("maillon20000", new Version(1, 0, 0)));
+		
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("jei");
+		assertEquals(2, solveur.domaineVariable("jei").size());
+		assertFalse(solveur.domaineVariable("jei").contains(new Version(4, 0, 0)));
+		assertFalse(solveur.contient("codechicken"));
+		
+		solveur.initialisationMod("maillon0");
+		assertTrue(solveur.contient("maillon20000"));
+		assertTrue(solveur.statistiques().fermeture > 20000);
+		solveur.init(Map.of("maillon0", VersionIntervalle.ouvert()));
+		assertTrue(solveur.resolution());
+		assertNotNull(solveur.solution("maillon20000"));
+	}
+	
+	@Test
+	void ordreVersions() {
+		depot.ajoutModVersion(new PaquetMinecraft("core", Version.read("2.1.0-beta")));
+		final List<OrdreVersions.Critere> tous = List.of(OrdreVersions.Critere.values());
+		final Map<String, Version> installes = Map.of("core", new Version(1, 1, 0));
+		
+		// ordre initial: la plus récente, même en pré-version
+		assertEquals(Version.read("2.1.0-beta"), this.premiereVersion(null));
+		assertEquals(new Version(2, 0, 1),
+				this.premiereVersion(new OrdreVersions(Map.of(), (modid, version) -> false, tous)));
+		assertEquals(new Version(1, 1, 0),
+				this.premiereVersion(new OrdreVersions(installes, (modid, version) -> false, tous)));
+		assertEquals(new Version(1, 0, 0), this.premiereVersion(
+				new OrdreVersions(Map.of(), (modid, version) -> version.equals(new Version(1, 0, 0)), tous)));
+		// critère désactivé
+		assertEquals(Version.read("2.1.0-beta"), this.premiereVersion(
+				new OrdreVersions(installes, (modid, version) -> false, List.of(OrdreVersions.Critere.cache))));
+	}
+	
+	/** Version de core choisie par une résolution qui installe forge et core. */
+	private Version premiereVersion(final OrdreVersions ordre) {
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("core");
+		// ordre calculé après le chargement des variables
+		solveur.ordreValeurs(ordre);
+		solveur.restriction("forge", Objects::nonNull);
+		solveur.restriction("core", Objects::nonNull);
+		assertTrue(solveur.resolution());
+		return solveur.solution("core");
+	}
+	
+	@Test
+	void probleme() throws IOException {
+		final PaquetMinecraft optifine = new PaquetMinecraft("optifine", new Version(1, 0, 0));
+		optifine.ajoutConflit("core", VersionIntervalle.read("[2.0,3)"));
+		depot.ajoutModVersion(optifine);
+		
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.init(Map.of("modext2", VersionIntervalle.ouvert(), "optifine", VersionIntervalle.ouvert()));
+		solveur.restriction("optifine", Objects::nonNull);
+		
+		final ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+		solveur.probleme().ecriture(sortie);
+		final Probleme probleme = Probleme.lecture(new ByteArrayInputStream(sortie.toByteArray()));
+		assertEquals(Set.of("forge"), probleme.declarations.keySet());
+		assertEquals(8, probleme.depot.sizeModVersion());
+		assertFalse(probleme.depot.contains("modext1"));
+		
+		assertTrue(solveur.resolution());
+		for (Resolveur.Moteur moteur : Resolveur.Moteur.values()) {
+			final Resolveur rejoue = probleme.resolveur(moteur, SelecteurVariable.Heuristique.domwdeg);
+			assertEquals(solveur.variables(), rejoue.variables());
+			assertTrue(rejoue.resolution());
+			assertEquals(new Version(1, 0, 0), rejoue.solution("optifine"));
+			assertEquals(new Version(1, 1, 0), rejoue.solution("core"));
+		}
+	}
+	
+	@Test
+	void problemeRejoue() throws IOException {
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.selecteur(SelecteurVariable.Heuristique.domwdeg.creation());
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		// plus de clés que ne le préserverait un objet JSON
+		for (final String modid : Arrays.asList("liteloader", "baubles", "ae2", "jei", "optifine"))
+			solveur.ajoutVariable(modid, Arrays.asList(null, new Version(1, 0, 0), new Version(2, 0, 0)));
+		for (final String modid : Arrays.asList("modext2", "modcore", "core"))
+			solveur.initialisationMod(modid);
+		for (final String modid : Arrays.asList("optifine", "modext2", "jei", "forge", "baubles"))
+			solveur.restriction(modid, Objects::nonNull);
+		final Probleme probleme = solveur.probleme();
+		
+		final ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+		probleme.ecriture(sortie);
+		final Probleme relu = Probleme.lecture(new ByteArrayInputStream(sortie.toByteArray()));
+		assertEquals(List.copyOf(probleme.declarations.keySet()), List.copyOf(relu.declarations.keySet()));
+		assertEquals(List.copyOf(probleme.demandes.keySet()), List.copyOf(relu.demandes.keySet()));
+		
+		assertTrue(solveur.resolution());
+		final SessionSolveur rejoue = (SessionSolveur) relu.resolveur(Resolveur.Moteur.csp,
+				SelecteurVariable.Heuristique.domwdeg);
+		assertEquals(solveur.cles, rejoue.solveur().cles);
+		assertTrue(rejoue.resolution());
+		assertEquals(solveur.solutionPartielle(), rejoue.solutionPartielle());
+		assertEquals(solveur.statistiques().decisions, rejoue.statistiques().decisions);
+		assertEquals(solveur.statistiques().retours, rejoue.statistiques().retours);
+		assertEquals(solveur.statistiques().echecs, rejoue.statistiques().echecs);
+	}
+	
+	@Test
+	void fragmentMinecraft() {
+		final PaquetMinecraft ancien = new PaquetMinecraft("jei", new Version(4, 0, 0));
+		ancien.ajoutModRequis("minecraft", VersionIntervalle.read("[1.7,1.8)"));
+		final PaquetMinecraft recent = new PaquetMinecraft("jei", new Version(4, 16, 0));
+		recent.ajoutModRequis("minecraft", mc_1_12);
+		depot.ajoutModVersion(ancien);
+		depot.ajoutModVersion(recent);
+		
+		assertEquals(Set.of(recent), depot.getModVersions("jei", new Version(1, 12, 2)));
+		assertEquals(Set.of(ancien), depot.getModVersions("jei", new Version(1, 7, 10)));
+		assertTrue(depot.getModVersions("jei", new Version(1, 16, 5)).isEmpty());
+		assertEquals(2, depot.getModVersions("jei", null).size());
+		// sans contrainte sur minecraft, un paquet appartient à tous les fragments
+		assertEquals(3, depot.getModVersions("core", new Version(1, 7, 10)).size());
+		
+		// le fragment déjà calculé suit les ajouts au dépôt
+		final PaquetMinecraft suivant = new PaquetMinecraft("jei", new Version(4, 16, 1));
+		suivant.ajoutModRequis("minecraft", mc_1_12);
+		depot.ajoutModVersion(suivant);
+		assertEquals(2, depot.getModVersions("jei", new Version(1, 12, 2)).size());
+	}
+	
+	@Test
+	void elagage() {
+		final PaquetMinecraft orphelin = new PaquetMinecraft("orphelin", new Version(1, 0, 0));
+		orphelin.ajoutModRequis("absent", VersionIntervalle.ouvert());
+		final PaquetMinecraft addon = new PaquetMinecraft("addon", new Version(1, 0, 0));
+		addon.ajoutModRequis("orphelin", VersionIntervalle.ouvert());
+		addon.ajoutModRequis("minecraft", mc_1_12);
+		final PaquetMinecraft ancien = new PaquetMinecraft("modcore", new Version(0, 9, 0));
+		ancien.ajoutModRequis("core", VersionIntervalle.read("[0.5,1)"));
+		depot.ajoutModVersion(orphelin);
+		depot.ajoutModVersion(addon);
+		depot.ajoutModVersion(ancien);
+		
+		depot.elagage();
+		// une zone par borne de minecraft et par écart entre bornes
+		assertEquals(5, depot.mortes().size());
+		final Version mc = new Version(1, 12, 2);
+		assertTrue(depot.getModVersions("orphelin", mc).isEmpty());
+		assertTrue(depot.getModVersions("addon", mc).isEmpty());
+		assertEquals(3, depot.getModVersions("modcore", mc).size());
+		// les dépendances envers forge sont laissées au solveur
+		assertEquals(3, depot.getModVersions("core", mc).size());
+		
+		final SolveurPaquet solveur = new SolveurPaquet(depot, mc);
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("addon");
+		assertEquals(1, solveur.domaineVariable("addon").size());
+		assertFalse(solveur.contient("orphelin"));
+		
+		// une nouvelle version invalide l'élagage
+		depot.ajoutModVersion(new PaquetMinecraft("absent", new Version(1, 0, 0)));
+		assertTrue(depot.mortes().isEmpty());
+		depot.elagage();
+		assertEquals(1, depot.getModVersions("addon", mc).size());
+	}
+	
+	@Test
+	void rangs() {
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.initialisationMod("core");
+		// null, 2.0.1, 1.1.0, 1.0.0
+		assertArrayEquals(new int[]{2, 4}, solveur.rangs("core", VersionIntervalle.read("[1.0,2)")));
+		assertArrayEquals(new int[]{1, 2}, solveur.rangs("core", VersionIntervalle.read("(1.1,)")));
+		assertArrayEquals(new int[]{3, 3}, solveur.rangs("core", VersionIntervalle.read("(1.0,1.1)")));
+	}
+	
+	@Test
+	void resolutionSAT() {
+		final SolveurPaquetSAT solveur = new SolveurPaquetSAT(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("modext2");
+		solveur.restriction("modcore", new VersionIntervalle(new Version(1, 0, 0), new Version(2, 0, 0))::contains);
+		assertTrue(solveur.resolution());
+		
+		// versions les plus récentes compatibles, sans installer les mods inutiles.
+		assertEquals(new Version(1, 1, 0), solveur.solution("modcore"));
+		assertEquals(new Version(1, 1, 0), solveur.solution("core"));
+		assertEquals(new Version(14, 23, 5, 2854), solveur.solution("forge"));
+		assertNull(solveur.solution("modext2"));
+	}
+	
+	@Test
+	void conflitSAT() {
+		final PaquetMinecraft fabric = new PaquetMinecraft("fabric", new Version(9, 5, 0));
+		fabric.ajoutConflit("forge", VersionIntervalle.ouvert());
+		final PaquetMinecraft sodium = new PaquetMinecraft("sodium", new Version(1, 0, 0));
+		sodium.ajoutModRequis("fabric", VersionIntervalle.read("[9,10)"));
+		depot.ajoutModVersion(fabric);
+		depot.ajoutModVersion(sodium);
+		
+		final SolveurPaquetSAT solveur = new SolveurPaquetSAT(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.restriction("sodium", new VersionIntervalle(new Version(1, 0, 0))::contains);
+		assertTrue(solveur.resolution());
+		assertNull(solveur.solution("forge"));
+		
+		solveur.restriction("modcore", new VersionIntervalle(new Version(1, 0, 0), new Version(2, 0, 0))::contains);
+		assertFalse(solveur.resolution());
+	}
+	
+	@Test
+	void fermetureSAT() {
+		final PaquetMinecraft ancien = new PaquetMinecraft("jei", new Version(4, 0, 0));
+		ancien.ajoutModRequis("minecraft", VersionIntervalle.read("[1.7,1.8)"));
+		ancien.ajoutModRequis("codechicken", VersionIntervalle.read("[1.0,2)"));
+		depot.ajoutModVersion(ancien);
+		for (int i = 0; i < 20000; i++) {
+			final PaquetMinecraft maillon = new PaquetMinecraft("maillon" + i, new Version(1, 0, 0));
+			maillon.ajoutModRequis("maillon" + (i + 1), VersionIntervalle.ouvert());
+			depot.ajoutModVersion(maillon);
+		}
+		depot.ajoutModVersion(new PaquetMinecraft("maillon20000", new Version(1, 0, 0)));
+		
+		final SolveurPaquetSAT solveur = new SolveurPaquetSAT(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("jei");
+		assertFalse(solveur.variables().contains("codechicken"));
+		solveur.restriction("jei", new Version(4, 0, 0)::equals);
+		assertFalse(solveur.resolution());
+		
+		solveur.restriction("maillon0", Objects::nonNull);
+		assertTrue(solveur.variables().contains("maillon20000"));
+	}
+	
+	@Test
+	void optimisation() {
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		solveur.initialisationMod("core");
+		solveur.init(Map.of("modcore", new VersionIntervalle(new Version(1, 0, 0), new Version(2, 0, 0))));
+		solveur.optimisation(new ObjectifPaquet(Map.of("core", new Version(1, 0, 0)), Set.of()));
+		assertTrue(solveur.resolution());
+		
+		// garder core 1.0.0 coûte moins qu'installer la version 1.1.0 de modcore.
+		assertEquals(new Version(1, 0, 0), solveur.solution("core"));
+		assertEquals(new Version(1, 0, 0), solveur.solution("modcore"));
+		assertArrayEquals(new long[]{0, 1, 4}, solveur.valeurObjectif());
+		
+		solveur.historique.retour(0);
+		solveur.optimisation(new ObjectifPaquet(Map.of(), Set.of()));
+		assertTrue(solveur.resolution());
+		assertEquals(new Version(1, 1, 0), solveur.solution("core"));
+		assertEquals(new Version(1, 1, 0), solveur.solution("modcore"));
+		assertArrayEquals(new long[]{0, 2, 2}, solveur.valeurObjectif());
+	}
+	
+	@Test
+	void session() {
+		final SessionSolveur session = new SessionSolveur(new SolveurPaquet(depot, new Version(1, 12, 2)));
+		session.ajoutVariable("forge", Arrays.asList(null, new Version(14, 23, 5, 2854)));
+		session.restriction("modext1", Objects::nonNull);
+		assertTrue(session.resolution());
+		assertEquals(new Version(1, 0, 0), session.solution("core"));
+		
+		// modext1 et modext2 demandent des versions incompatibles de core
+		assertFalse(session.essai("modext2", Objects::nonNull));
+		assertEquals(1, session.hypotheses());
+		assertEquals(1, session.solveur().historique.niveau());
+		
+		session.retrait("modext1");
+		assertTrue(session.coherente());
+		assertTrue(session.essai("modext2", Objects::nonNull));
+		assertEquals(0, session.hypotheses());
+		
+		// une hypothèse impossible est signalée sans résolution, son retrait rétablit la session
+		session.restriction("core", v -> v != null && v.get(0) == 2);
+		session.restriction("modext2", Objects::nonNull);
+		assertFalse(session.coherente());
+		assertFalse(session.resolution());
+		session.retrait("core");
+		assertTrue(session.resolution());
+		assertEquals(new Version(0, 6, 0), session.solution("modext2"));
+	}
+	
+	@Test
+	void conflitMinimal() {
+		final Version forge = new Version(14, 23, 5, 2854);
+		final SessionSolveur session = new SessionSolveur(new SolveurPaquet(depot, new Version(1, 12, 2)));
+		session.ajoutVariable("forge", List.of(forge));
+		session.restriction("modcore", Objects::nonNull);
+		session.restriction("modext1", Objects::nonNull);
+		session.restriction("core", Objects::nonNull);
+		session.restriction("modext2", Objects::nonNull);
+		assertFalse(session.resolution());
+		
+		final List<Map.Entry<String, Predicate<Version>>> conflit = session.conflitMinimal();
+		assertNotNull(conflit);
+		assertEquals(List.of("modext1", "modext2"),
+				conflit.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+		// les hypothèses sont rétablies
+		assertEquals(4, session.hypotheses());
+		assertFalse(session.resolution());
+		session.retrait("modext2");
+		assertTrue(session.resolution());
+		assertNull(session.conflitMinimal());
+		
+		final Map<String, Predicate<Version>> demandes = new HashMap<>();
+		conflit.forEach(restriction -> demandes.put(restriction.getKey(), restriction.getValue()));
+		final List<Diagnostic.Arete> aretes = Diagnostic.aretes(depot, new Version(1, 12, 2),
+				Map.of("forge", List.of(forge)), demandes, Budget.ILLIMITE);
+		assertNotNull(aretes);
+		assertEquals(Set.of(new Diagnostic.Arete("modext1", "core", false),
+				new Diagnostic.Arete("modext2", "core", false)), Set.copyOf(aretes));
+	}
+	
+	@Test
+	void conflitInterrompu() {
+		// le troisième test n'aboutit pas: il ne compte pas comme un conflit
+		final Deque<Integer> posees = new ArrayDeque<>();
+		final int[] tests = {0};
+		final Diagnostic.Pile<Integer> pile = new Diagnostic.Pile<Integer>() {
+			@Override
+			public void ajout(Integer element) {
+				posees.push(element);
+			}
+			
+			@Override
+			public void retrait() {
+				posees.pop();
+			}
+			
+			@Override
+			public boolean coherente() {
+				return ++tests[0] < 3 && !(posees.contains(1) && posees.contains(4));
+			}
+			
+			@Override
+			public boolean interrompue() {
+				return tests[0] >= 3;
+			}
+		};
+		assertThrows(Diagnostic.Interruption.class, () -> Diagnostic.quickXplain(pile, List.of(1, 2, 3, 4, 5)));
+		assertTrue(posees.isEmpty());
+		tests[0] = Integer.MIN_VALUE;
+		assertEquals(List.of(1, 4), Diagnostic.quickXplain(pile, List.of(1, 2, 3, 4, 5)));
+	}
+	
+	@Test
+	void installables() {
+		final SessionSolveur session = new SessionSolveur(new SolveurPaquet(depot, new Version(1, 12, 2)));
+		session.ajoutVariable("forge", List.of(new Version(14, 23, 5, 2854)));
+		session.restriction("modext1", Objects::nonNull);
+		
+		final List<String> modids = List.of("core", "modcore", "modext2", "inconnu");
+		final Map<String, Version> installables = session.installables(modids);
+		assertEquals(Map.of("core", new Version(1, 0, 0), "modcore", new Version(1, 0, 0)), installables);
+		for (final String modid : modids)
+			assertEquals(installables.containsKey(modid), session.essai(modid, Objects::nonNull), modid);
+		assertEquals(1, session.hypotheses());
+		assertTrue(session.resolution());
+	}
+	
+	@Test
+	void versionsEquivalentes() {
+		// vingt correctifs de lib exigent a, b et c, qui prennent des versions différentes parmi deux
+		final Depot depot = new Depot();
+		for (int correctif = 0; correctif < 20; correctif++) {
+			final PaquetMinecraft lib = new PaquetMinecraft("lib", new Version(1, 0, correctif));
+			for (String dep : List.of("a", "b", "c"))
+				lib.ajoutModRequis(dep, VersionIntervalle.read("[1.0,3.0)"));
+			depot.ajoutModVersion(lib);
+		}
+		depot.ajoutModVersion(new PaquetMinecraft("lib", new Version(0, 9, 0)));
+		for (String modid : List.of("a", "b", "c"))
+			for (int v = 1; v <= 2; v++) {
+				final PaquetMinecraft paquet = new PaquetMinecraft(modid, new Version(v, 0, 0));
+				for (String autre : List.of("a", "b", "c"))
+					if (!autre.equals(modid)) paquet.ajoutConflit(autre, new VersionIntervalle(new Version(v, 0, 0)));
+				depot.ajoutModVersion(paquet);
+			}
+		
+		final SolveurPaquet solveur = new SolveurPaquet(depot, new Version(1, 12, 2));
+		solveur.selecteur(SelecteurVariable.Heuristique.premier.creation());
+		solveur.restriction("lib", Objects::nonNull);
+		assertTrue(solveur.resolution());
+		assertEquals(new Version(0, 9, 0), solveur.solution("lib"));
+		// le premier correctif réfuté emporte les dix-neuf autres
+		assertEquals(19, solveur.statistiques().equivalentes);
+	}
 }
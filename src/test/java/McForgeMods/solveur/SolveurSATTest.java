@@ -0,0 +1,71 @@
+package McForgeMods.solveur;
+
+import org.junit.jupiter.api.Test;
+
+import static McForgeMods.solveur.SolveurSAT.negatif;
+import static McForgeMods.solveur.SolveurSAT.positif;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolveurSATTest {
+	
+	@Test
+	void luby() {
+		final long[] attendu = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+		for (int i = 0; i < attendu.length; i++)
+			assertEquals(attendu[i], SolveurSAT.luby(i + 1));
+	}
+	
+	@Test
+	void resolutionSimple() {
+		final SolveurSAT solveur = new SolveurSAT();
+		final int a = solveur.nouvelleVariable(), b = solveur.nouvelleVariable(), c = solveur.nouvelleVariable();
+		assertTrue(solveur.ajoutClause(positif(a), positif(b)));
+		assertTrue(solveur.ajoutClause(negatif(a), positif(c)));
+		assertTrue(solveur.ajoutClause(negatif(b), positif(c)));
+		assertTrue(solveur.ajoutClause(negatif(c), negatif(a)));
+		
+		assertTrue(solveur.resolution());
+		assertTrue(solveur.vrai(negatif(a)));
+		assertTrue(solveur.vrai(positif(b)));
+		assertTrue(solveur.vrai(positif(c)));
+	}
+	
+	@Test
+	void clauseVide() {
+		final SolveurSAT solveur = new SolveurSAT();
+		final int a = solveur.nouvelleVariable();
+		assertTrue(solveur.ajoutClause(positif(a)));
+		assertFalse(solveur.ajoutClause(negatif(a)));
+		assertFalse(solveur.resolution());
+	}
+	
+	/** Principe des tiroirs: 6 pigeons dans 5 trous, insatisfiable sans propagation triviale. */
+	@Test
+	void tiroirs() {
+		final int pigeons = 6, trous = 5;
+		final SolveurSAT solveur = new SolveurSAT();
+		final int[][] place = new int[pigeons][trous];
+		for (int p = 0; p < pigeons; p++)
+			for (int t = 0; t < trous; t++)
+				place[p][t] = solveur.nouvelleVariable();
+		for (int p = 0; p < pigeons; p++) {
+			final int[] clause = new int[trous];
+			for (int t = 0; t < trous; t++)
+				clause[t] = positif(place[p][t]);
+			solveur.ajoutClause(clause);
+		}
+		for (int t = 0; t < trous; t++)
+			for (int p = 0; p < pigeons; p++)
+				for (int q = p + 1; q < pigeons; q++)
+					solveur.ajoutClause(negatif(place[p][t]), negatif(place[q][t]));
+		
+		solveur.budget(new Budget(0, 0, 1));
+		assertFalse(solveur.resolution());
+		assertTrue(solveur.interrompue());
+		
+		solveur.budget(Budget.ILLIMITE);
+		assertFalse(solveur.resolution());
+		assertFalse(solveur.interrompue());
+		assertTrue(solveur.conflits > 0);
+	}
+}
@@ -2,11 +2,13 @@ package McForgeMods.solveur;
 
 import McForgeMods.Version;
 import McForgeMods.VersionIntervalle;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -115,6 +117,45 @@ class SolveurTest {
 		assertEquals(1, solveur.domaineVariable("thunderbird-locale-fr").size());
 	}
 	
+	@Test
+	void resolutionRestauration() {
+		solveur.selecteur(new SelecteurVariable.Premier());
+		solveur.domaineVariable("libc6").reduction(new Version(2, 31, 0));
+		assertTrue(solveur.resolution());
+		solveur.historique.retour(0);
+		
+		// les réductions du niveau 0 sont conservées, y compris les valeurs réfutées à ce niveau
+		assertEquals(1, solveur.domaineVariable("libc6").size());
+		assertFalse(solveur.domaineVariable("libcrypt1").contains(null));
+		assertEquals(2, solveur.domaineVariable("libcrypt1").size());
+		assertEquals(4, solveur.domaineVariable("make").size());
+		assertEquals(4, solveur.domaineVariable("thunderbird").size());
+		assertEquals(4, solveur.domaineVariable("thunderbird-locale-fr").size());
+	}
+	
+	@Test
+	void selectionPlusPetitDomaine() {
+		solveur.selecteur(new SelecteurVariable.PlusPetitDomaine());
+		solveur.domaineVariable("thunderbird").removeIf(v -> v == null || v.get(0) < 60);
+		assertEquals(solveur.indices.get("thunderbird"), solveur.selecteur().selection());
+		
+		solveur.domaineVariable("thunderbird").reduction(new Version(78, 3, 2));
+		assertEquals(solveur.indices.get("libcrypt1"), solveur.selecteur().selection());
+	}
+	
+	@ParameterizedTest
+	@EnumSource(SelecteurVariable.Heuristique.class)
+	void resolutionHeuristiques(SelecteurVariable.Heuristique heuristique) {
+		solveur.selecteur(heuristique.creation());
+		solveur.domaineVariable("thunderbird-locale-fr").reduction(new Version(68, 7, 0));
+		assertTrue(solveur.resolution());
+		
+		assertEquals(new Version(68, 7, 0), solveur.domaineVariable("thunderbird").get(0));
+		assertNotNull(solveur.domaineVariable("libc6").get(0));
+		assertNull(solveur.domaineVariable("make").get(0));
+		assertEquals(-1, solveur.selecteur().selection());
+	}
+	
 	@Test
 	void resolutionAscendanteLibc6() {
 		solveur.domaineVariable("libc6").reduction(new Version(2, 31, 0));
@@ -164,4 +205,216 @@ class SolveurTest {
 		
 		assertFalse(solveur.resolution());
 	}
-}
\ No newline at end of file
+	
+	@Test
+	void conflitSupport() {
+		final Solveur<String, Version> solveur = new Solveur<>();
+		solveur.ajoutVariable("a", Arrays.asList(new Version(1, 0, 0), new Version(2, 0, 0)));
+		solveur.ajoutVariable("b", Arrays.asList(new Version(1, 0, 0), new Version(2, 0, 0), new Version(3, 0, 0)));
+		solveur.ajoutContrainte(
+				new ContrainteConflit<>("a", new Version(2, 0, 0), "b", VersionIntervalle.read("[1,3)")));
+		assertTrue(solveur.coherence());
+		assertEquals(2, solveur.domaineVariable("a").size());
+		
+		// b perd sa dernière version hors conflit
+		solveur.historique.nouveauNiveau();
+		solveur.domaineVariable("b").remove(new Version(3, 0, 0));
+		assertTrue(solveur.coherence());
+		assertFalse(solveur.domaineVariable("a").contains(new Version(2, 0, 0)));
+		
+		// le support est retrouvé après le retour en arrière, a fixé exclut les versions en conflit
+		solveur.historique.retour(0);
+		solveur.historique.nouveauNiveau();
+		solveur.domaineVariable("a").reduction(new Version(2, 0, 0));
+		assertTrue(solveur.coherence());
+		assertEquals(1, solveur.domaineVariable("b").size());
+		assertEquals(new Version(3, 0, 0), solveur.domaineVariable("b").get(0));
+	}
+	
+	@Test
+	void backjumping() {
+		final Solveur<String, Version> solveur = new Solveur<>();
+		solveur.selecteur(new SelecteurVariable.Premier());
+		final List<Version> versions = Arrays.asList(new Version(1, 0, 0), new Version(2, 0, 0));
+		// variables indépendantes décidées avant le conflit: un retour chronologique les explorerait toutes.
+		for (int i = 0; i < 40; i++)
+			solveur.ajoutVariable("libre" + i, versions);
+		// trois paquets doivent prendre des versions différentes parmi deux.
+		final List<String> paquets = Arrays.asList("a", "b", "c");
+		for (String paquet : paquets)
+			solveur.ajoutVariable(paquet, versions);
+		for (String paquet : paquets)
+			for (String autre : paquets)
+				if (!paquet.equals(autre)) for (Version version : versions)
+					solveur.ajoutContrainte(
+							new ContrainteConflit<>(paquet, version, autre, new VersionIntervalle(version)));
+		
+		assertTrue(solveur.coherence());
+		assertFalse(solveur.resolution());
+		assertTrue(solveur.contraintes.stream().anyMatch(c -> c instanceof ContrainteNogood));
+		assertTrue(solveur.contraintes.stream().filter(c -> c instanceof ContrainteNogood)
+				.allMatch(c -> c.variables.stream().noneMatch(id -> id.startsWith("libre"))));
+	}
+	
+	@Test
+	void composantes() {
+		final Solveur<String, Version> solveur = new Solveur<>();
+		final List<Version> versions = Arrays.asList(new Version(1, 0, 0), new Version(2, 0, 0));
+		solveur.ajoutVariable("commun", versions);
+		for (String famille : Arrays.asList("a", "b"))
+			for (int i = 0; i < 3; i++) {
+				solveur.ajoutVariable(famille + i, versions);
+				// toutes les familles dépendent du mod commun, les mods d'une famille sont en conflit deux à deux
+				solveur.ajoutContrainte(new ContrainteDependance(famille + i, new Version(2, 0, 0), "commun",
+						new VersionIntervalle(new Version(2, 0, 0))));
+				for (int j = 0; j < i; j++)
+					solveur.ajoutContrainte(new ContrainteConflit<>(famille + i, new Version(1, 0, 0), famille + j,
+							new VersionIntervalle(new Version(1, 0, 0))));
+			}
+		assertTrue(solveur.coherence());
+		assertEquals(1, solveur.composantes().size());
+		
+		// une fois le mod commun fixé, les deux familles sont indépendantes
+		solveur.domaineVariable("commun").reduction(new Version(2, 0, 0));
+		assertTrue(solveur.coherence());
+		assertEquals(2, solveur.composantes().size());
+		assertTrue(solveur.resolutionComposantes(false));
+		for (String id : solveur.variables())
+			assertEquals(1, solveur.domaineVariable(id).size());
+		
+		solveur.historique.retour(0);
+		assertTrue(solveur.resolutionComposantes(true));
+		for (String id : solveur.variables())
+			assertEquals(1, solveur.domaineVariable(id).size());
+	}
+	
+	@Test
+	void composantesInsatisfiable() {
+		final Solveur<String, Version> solveur = new Solveur<>();
+		final List<Version> versions = Arrays.asList(new Version(1, 0, 0), new Version(2, 0, 0));
+		for (int i = 0; i < 4; i++)
+			solveur.ajoutVariable("libre" + i, versions);
+		final List<String> paquets = Arrays.asList("a", "b", "c");
+		for (String paquet : paquets)
+			solveur.ajoutVariable(paquet, versions);
+		for (String paquet : paquets)
+			for (String autre : paquets)
+				if (!paquet.equals(autre)) for (Version version : versions)
+					solveur.ajoutContrainte(
+							new ContrainteConflit<>(paquet, version, autre, new VersionIntervalle(version)));
+		
+		assertEquals(5, solveur.composantes().size());
+		assertFalse(solveur.resolutionComposantes(false));
+		assertEquals(2, solveur.domaineVariable("libre0").size());
+		assertFalse(solveur.resolutionComposantes(true));
+		assertEquals(2, solveur.domaineVariable("a").size());
+	}
+	
+	@Test
+	void budget() {
+		// principe des tiroirs: 6 paquets prennent des versions différentes parmi 5
+		final Solveur<String, Version> solveur = new Solveur<>();
+		final List<Version> versions = new ArrayList<>();
+		for (int v = 1; v <= 5; v++)
+			versions.add(new Version(v, 0, 0));
+		for (int i = 0; i < 6; i++) {
+			solveur.ajoutVariable("p" + i, versions);
+			for (int j = 0; j < i; j++)
+				for (Version version : versions)
+					solveur.ajoutContrainte(
+							new ContrainteConflit<>("p" + i, version, "p" + j, new VersionIntervalle(version)));
+		}
+		
+		solveur.budget(new Budget(0, 3, 0));
+		assertFalse(solveur.resolution());
+		assertTrue(solveur.interrompue());
+		assertTrue(solveur.budgetEpuise());
+		// trois décisions cohérentes, sans conflit entre elles
+		final Map<String, Version> partielle = solveur.solutionPartielle();
+		assertTrue(partielle.size() >= 3);
+		assertEquals(partielle.size(), new HashSet<>(partielle.values()).size());
+		assertEquals(5, solveur.domaineVariable("p0").size());
+		
+		solveur.budget(Budget.ILLIMITE);
+		assertFalse(solveur.resolution());
+		assertFalse(solveur.interrompue());
+		assertTrue(solveur.solutionPartielle().isEmpty());
+	}
+	
+	@Test
+	void statistiques() {
+		solveur.statistiques().detail = true;
+		solveur.domaineVariable("thunderbird").reduction(new Version(68, 7, 0));
+		assertTrue(solveur.resolution());
+		
+		final Statistiques statistiques = solveur.statistiques();
+		assertTrue(statistiques.decisions > 0);
+		assertTrue(statistiques.profondeurMax > 0 && statistiques.profondeurMax <= statistiques.decisions);
+		assertTrue(statistiques.revisions > 0);
+		final JSONObject json = statistiques.json();
+		assertTrue(json.getJSONObject("contraintes").getJSONObject("ContrainteDependance").getLong("revisions") > 0);
+		assertTrue(json.getJSONObject("phases").has("recherche"));
+	}
+	
+	@Test
+	void portfolio() {
+		solveur.domaineVariable("thunderbird").reduction(new Version(68, 7, 0));
+		assertTrue(solveur.resolutionPortfolio(6));
+		
+		for (String id : solveur.variables())
+			assertEquals(1, solveur.domaineVariable(id).size());
+		assertEquals(new Version(68, 7, 0), solveur.domaineVariable("thunderbird").get(0));
+		assertNotNull(solveur.domaineVariable("libc6").get(0));
+		// la solution adoptée est annulable comme celle d'une résolution simple
+		solveur.historique.retour(0);
+		assertTrue(solveur.domaineVariable("libc6").size() > 1);
+	}
+	
+	@Test
+	void portfolioInsatisfiable() {
+		final Solveur<String, Version> solveur = new Solveur<>();
+		final List<Version> versions = Arrays.asList(new Version(1, 0, 0), new Version(2, 0, 0));
+		final List<String> paquets = Arrays.asList("a", "b", "c");
+		for (String paquet : paquets)
+			solveur.ajoutVariable(paquet, versions);
+		for (String paquet : paquets)
+			for (String autre : paquets)
+				if (!paquet.equals(autre)) for (Version version : versions)
+					solveur.ajoutContrainte(
+							new ContrainteConflit<>(paquet, version, autre, new VersionIntervalle(version)));
+		
+		assertFalse(solveur.resolutionPortfolio(4));
+		assertEquals(2, solveur.domaineVariable("a").size());
+	}
+	
+	@Test
+	void resolutionParallele() {
+		solveur.domaineVariable("thunderbird").reduction(new Version(68, 7, 0));
+		assertTrue(solveur.resolutionParallele(3));
+		
+		for (String id : solveur.variables())
+			assertEquals(1, solveur.domaineVariable(id).size());
+		assertEquals(new Version(68, 7, 0), solveur.domaineVariable("thunderbird").get(0));
+		assertNotNull(solveur.domaineVariable("libc6").get(0));
+	}
+	
+	@Test
+	void resolutionParalleleInsatisfiable() {
+		final Solveur<String, Version> solveur = new Solveur<>();
+		solveur.selecteur(new SelecteurVariable.Premier());
+		final List<Version> versions = Arrays.asList(new Version(1, 0, 0), new Version(2, 0, 0));
+		for (int i = 0; i < 4; i++)
+			solveur.ajoutVariable("libre" + i, versions);
+		final List<String> paquets = Arrays.asList("a", "b", "c");
+		for (String paquet : paquets)
+			solveur.ajoutVariable(paquet, versions);
+		for (String paquet : paquets)
+			for (String autre : paquets)
+				if (!paquet.equals(autre)) for (Version version : versions)
+					solveur.ajoutContrainte(
+							new ContrainteConflit<>(paquet, version, autre, new VersionIntervalle(version)));
+		
+		assertFalse(solveur.resolutionParallele(3));
+		assertEquals(2, solveur.domaineVariable("libre0").size());
+	}
+}